@@ -0,0 +1,93 @@
+/**
+ * What the hint analysis found out about a position: the score of every move of the player to move and the best of
+ * them, at the depth they were searched to.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class Analysis {
+    public static final int NO_SCORE = Integer.MIN_VALUE;
+
+    private final int[] scores;
+    private final int bestMove;
+    private final int depth;
+
+    /**
+     * Constructor that initializes all private attributes to the given parameters.
+     *
+     * @param scores The score of playing every container from the point of view of the player to move, NO_SCORE for
+     *               containers that cannot be played. The array is not copied.
+     * @param bestMove The index of the best pit, or -1 if there is no legal move.
+     * @param depth The depth every move was searched to.
+     */
+    public Analysis(int[] scores, int bestMove, int depth) {
+        this.scores = scores;
+        this.bestMove = bestMove;
+        this.depth = depth;
+    }
+
+    /**
+     * @param index The index of a container.
+     * @return The score of playing it from the point of view of the player to move, or NO_SCORE.
+     */
+    public int getScore(int index) {
+        return scores[index];
+    }
+
+    /**
+     * @return The index of the best pit, or -1 if there is no legal move.
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return The depth every move was searched to.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @param index The index of a container.
+     * @return The score of playing it as text: stones ahead, or W and L for a game that is won or lost.
+     */
+    public String formatScore(int index) {
+        int score = scores[index];
+
+        if (score == NO_SCORE)
+            return "";
+        else if (score >= SearchEngine.WIN_SCORE)
+            return String.format("W%+.0f", (score - SearchEngine.WIN_SCORE) / (double) Evaluator.STONE);
+        else if (score <= -SearchEngine.WIN_SCORE)
+            return String.format("L%+.0f", (score + SearchEngine.WIN_SCORE) / (double) Evaluator.STONE);
+
+        return String.format("%+.1f", score / (double) Evaluator.STONE);
+    }
+
+    /**
+     * @param state The position this analysis is of.
+     * @return The same analysis with the containers numbered from the point of view of the player to move, the way
+     *         it is shared with the side-swapped twin of the position.
+     */
+    public Analysis toCanonical(GameState state) {
+        int[] canonical = new int[scores.length];
+
+        for (int i = 0; i < scores.length; i++)
+            canonical[state.toCanonicalIndex(i)] = scores[i];
+
+        return new Analysis(canonical, bestMove < 0 ? -1 : state.toCanonicalIndex(bestMove), depth);
+    }
+
+    /**
+     * @param state The position to apply a canonical analysis to.
+     * @return The analysis with the containers numbered the way they are on the board of the position.
+     */
+    public Analysis fromCanonical(GameState state) {
+        int[] board = new int[scores.length];
+
+        for (int i = 0; i < scores.length; i++)
+            board[state.fromCanonicalIndex(i)] = scores[i];
+
+        return new Analysis(board, bestMove < 0 ? -1 : state.fromCanonicalIndex(bestMove), depth);
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.*;
+
+/**
+ * A bounded cache of hint analyses, keyed by the canonical hash of their position. Going back to a position, by a take
+ * back, a new game or scrubbing a replay, finds its analysis here instead of searching it again. When the cache is
+ * full the analysis that was used the longest time ago is dropped. A position and its side-swapped twin share one
+ * entry.
+ *
+ * The cache is used from the event dispatch thread and the analysis thread, so every method is synchronized.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class AnalysisCache {
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private final LinkedHashMap<Long, Analysis> entries;
+
+    /**
+     * Constructor that initializes all private attributes.
+     *
+     * @param capacity The number of analyses to keep.
+     */
+    public AnalysisCache(final int capacity) {
+        entries = new LinkedHashMap<Long, Analysis>(capacity * 4 / 3 + 1, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Long, Analysis> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param state A position.
+     * @return The analysis of the position with the containers numbered like its board, or null.
+     */
+    public synchronized Analysis get(GameState state) {
+        Analysis analysis = entries.get(state.canonicalHash());
+        return analysis == null ? null : analysis.fromCanonical(state);
+    }
+
+    /**
+     * Keep the analysis of a position, unless a deeper one is already kept.
+     *
+     * @param state The position.
+     * @param analysis The analysis, with the containers numbered like the board of the position.
+     */
+    public synchronized void put(GameState state, Analysis analysis) {
+        Analysis old = entries.get(state.canonicalHash());
+
+        if (old == null || old.getDepth() < analysis.getDepth())
+            entries.put(state.canonicalHash(), analysis.toCanonical(state));
+    }
+
+    /**
+     * @return The number of analyses kept.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Forget every analysis.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+}
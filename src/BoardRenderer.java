@@ -0,0 +1,282 @@
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.imageio.*;
+
+/**
+ * Draws board positions into an image without any window, with the same style shapes the board uses. One image is
+ * allocated per renderer and redrawn for every position, so a renderer makes a frame without creating Swing
+ * components. Shapes are redrawn in place, so a renderer and its style must only be used by one thread at a time;
+ * renderAll gives every worker thread its own.
+ *
+ * The containers are laid out like the board: the second player's mancala on the left, the second player's pits
+ * along the top from right to left, the first player's pits along the bottom and the first player's mancala on the
+ * right.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class BoardRenderer {
+    private final BoardStyle style;
+    private final double scale;
+    private final BufferedImage image;
+    private final Graphics2D g2;
+    private final int[] originX;
+    private final int[] originY;
+
+    /**
+     * Constructor that lays out the containers and allocates the image.
+     *
+     * @param style The style to draw with. It must not be used by the board or another renderer.
+     * @param scale The size of the image relative to the board, like 0.25 for thumbnails.
+     */
+    public BoardRenderer(BoardStyle style, double scale) {
+        this.style = style;
+        this.scale = scale;
+        originX = new int[GameState.PIT_COUNT];
+        originY = new int[GameState.PIT_COUNT];
+
+        ContainingShape mancala = style.getMancalaStyle();
+        ContainingShape pit = style.getPitStyle();
+        int mancalaWidth = mancala.getWidth() + mancala.getX() * 2;
+        int pitWidth = pit.getWidth() + pit.getX() * 2;
+        int pitHeight = pit.getHeight() + pit.getY() * 2;
+        int width = mancalaWidth * 2 + pitWidth * GameState.PITS_PER_PLAYER;
+        int height = Math.max(mancala.getHeight() + mancala.getY() * 2, pitHeight * 2);
+        int top = (height - pitHeight * 2) / 2;
+
+        originX[GameState.PLAYER_TWO_MANCALA_INDEX] = 0;
+        originX[GameState.PLAYER_ONE_MANCALA_INDEX] = width - mancalaWidth;
+
+        for (int i = 0; i < GameState.PITS_PER_PLAYER; i++) {
+            originX[i] = mancalaWidth + i * pitWidth;
+            originY[i] = top + pitHeight;
+            originX[GameState.PITS_PER_PLAYER * 2 - i] = mancalaWidth + i * pitWidth;
+            originY[GameState.PITS_PER_PLAYER * 2 - i] = top;
+        }
+
+        image = new BufferedImage((int) Math.ceil(width * scale), (int) Math.ceil(height * scale),
+                BufferedImage.TYPE_INT_RGB);
+        g2 = image.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.scale(scale, scale);
+    }
+
+    /**
+     * Draw a position. Stones get a color from the palette by their container and slot, so the same position always
+     * looks the same.
+     *
+     * @param state The position to draw.
+     * @return The image, which is overwritten by the next call.
+     */
+    public BufferedImage render(GameState state) {
+        clear();
+
+        for (int i = 0; i < GameState.PIT_COUNT; i++) {
+            drawContainer(i);
+            StoneLayout layout = style.getLayout(i);
+
+            for (int slot = 0; slot < state.getStones(i); slot++)
+                style.drawStone(g2, Stone.get((i * 31 + slot * 7) % Stone.PALETTE_SIZE), originX[i] + layout.getX(slot),
+                        originY[i] + layout.getY(slot));
+        }
+
+        return image;
+    }
+
+    /**
+     * Draw the position of a board with the colors of its own stones.
+     *
+     * @param model The model of the board.
+     * @return The image, which is overwritten by the next call.
+     */
+    public BufferedImage render(Model model) {
+        clear();
+
+        for (int i = 0; i < GameState.PIT_COUNT; i++) {
+            drawContainer(i);
+            StoneLayout layout = style.getLayout(i);
+            ArrayList<Stone> stones = model.getModel(i);
+
+            for (int slot = 0; slot < stones.size(); slot++)
+                style.drawStone(g2, stones.get(slot), originX[i] + layout.getX(slot), originY[i] + layout.getY(slot));
+        }
+
+        return image;
+    }
+
+    /**
+     * Encode the last drawn image as PNG.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writePng(File file) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+
+        try {
+            if (!ImageIO.write(image, "png", out))
+                throw new IOException("No PNG encoder");
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @return The size of the image relative to the board.
+     */
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Paint the background.
+     */
+    private void clear() {
+        g2.setColor(Color.WHITE);
+        g2.fillRect(0, 0, (int) Math.ceil(image.getWidth() / scale), (int) Math.ceil(image.getHeight() / scale));
+    }
+
+    /**
+     * Draw the outline of a container.
+     *
+     * @param index The index of the container.
+     */
+    private void drawContainer(int index) {
+        ContainingShape container = index == GameState.PLAYER_ONE_MANCALA_INDEX ||
+                index == GameState.PLAYER_TWO_MANCALA_INDEX ? style.getMancalaStyle() : style.getPitStyle();
+        g2.translate(originX[index], originY[index]);
+        container.draw(g2);
+        g2.translate(-originX[index], -originY[index]);
+    }
+
+    /**
+     * @param square True for the square style, false for the circle style.
+     * @return A style that is not attached to any board, for drawing off screen.
+     */
+    public static BoardStyle createStyle(boolean square) {
+        return square ? new SquareStyle(null) : new CircleStyle(null);
+    }
+
+    /**
+     * Render games on every core: a thumbnail of the final position of every game, and optionally a frame of every
+     * position for replays. Every worker thread draws with its own renderer and style.
+     *
+     * @param games The moves of every game.
+     * @param stonesPerPit The number of starting stones in every pit.
+     * @param directory The directory to write game-N.png thumbnails and game-N-PLY.png frames to.
+     * @param scale The size of the images relative to the board.
+     * @param square True for the square style, false for the circle style.
+     * @param frames Whether or not to write a frame of every position.
+     * @return The number of images written.
+     * @throws IOException If an image cannot be written.
+     * @throws InterruptedException If the rendering is interrupted.
+     */
+    public static int renderAll(java.util.List<int[]> games, final int stonesPerPit, final File directory,
+            final double scale, final boolean square, final boolean frames) throws IOException, InterruptedException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Could not create " + directory);
+
+        ImageIO.setUseCache(false); //Encode in memory rather than through temporary files
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final ThreadLocal<BoardRenderer> renderers = new ThreadLocal<BoardRenderer>() {
+            protected BoardRenderer initialValue() {
+                return new BoardRenderer(createStyle(square), scale);
+            }
+        };
+        ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>();
+
+        for (int g = 0; g < games.size(); g++) {
+            final int id = g;
+            final int[] moves = games.get(g);
+
+            results.add(pool.submit(new Callable<Integer>() {
+                public Integer call() throws IOException {
+                    BoardRenderer renderer = renderers.get();
+                    GameState state = new GameState(stonesPerPit);
+                    int written = 0;
+
+                    for (int ply = 0; ply <= moves.length; ply++) {
+                        if (ply > 0)
+                            state.play(moves[ply - 1]);
+
+                        if (frames) {
+                            renderer.render(state);
+                            renderer.writePng(new File(directory, String.format("game-%d-%04d.png", id, ply)));
+                            written++;
+                        }
+                    }
+
+                    renderer.render(state);
+                    renderer.writePng(new File(directory, "game-" + id + ".png"));
+                    return written + 1;
+                }
+            }));
+        }
+
+        int written = 0;
+
+        try {
+            for (Future<Integer> result : results)
+                written += result.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException)
+                throw (IOException) ex.getCause();
+
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        return written;
+    }
+
+    /**
+     * Render random games.
+     *
+     * @param args The directory, the number of games, and optionally the scale, "square" and "frames".
+     * @throws Exception If the images cannot be written.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: directory games [scale] [square] [frames]");
+            return;
+        }
+
+        int count = Integer.parseInt(args[1]);
+        double scale = args.length > 2 ? Double.parseDouble(args[2]) : 0.25;
+        java.util.List<String> options = Arrays.asList(args);
+        Random rand = new Random();
+        ArrayList<int[]> games = new ArrayList<int[]>();
+
+        for (int g = 0; g < count; g++) {
+            GameState state = new GameState(4);
+            int[] moves = new int[64];
+            int length = 0;
+
+            while (!state.isFinished()) {
+                int move;
+
+                do {
+                    move = rand.nextInt(GameState.PIT_COUNT);
+                } while (!state.isLegalMove(move));
+
+                state.play(move);
+
+                if (length == moves.length)
+                    moves = Arrays.copyOf(moves, length * 2);
+
+                moves[length++] = move;
+            }
+
+            games.add(Arrays.copyOf(moves, length));
+        }
+
+        long start = System.nanoTime();
+        int written = renderAll(games, 4, new File(args[0]), scale, options.contains("square"),
+                options.contains("frames"));
+        System.out.printf("%d images in %.1fs%n", written, (System.nanoTime() - start) / 1e9);
+    }
+}
@@ -9,6 +9,8 @@ public abstract class BoardStyle {
     private BoardView container;
     private Color naturalColor;
     private Color highlightedColor;
+    private StoneLayout mancalaLayout;
+    private StoneLayout pitLayout;
 
     /**
      * Constructor that keeps a reference of the underlying user of this strategy.
@@ -19,6 +21,8 @@ public abstract class BoardStyle {
         this.container = container;
         naturalColor = Color.BLACK;
         highlightedColor = Color.BLACK;
+        mancalaLayout = null;
+        pitLayout = null;
     }
 
     /**
@@ -41,6 +45,42 @@ public abstract class BoardStyle {
      */
     public abstract ContainingShape getStoneStyle();
 
+    /**
+     * @param index The index of a container.
+     * @return The stone positions of the container, computed the first time they are needed.
+     */
+    public StoneLayout getLayout(int index) {
+        if (index == BoardView.PLAYER_ONE_MANCALA_INDEX || index == BoardView.PLAYER_TWO_MANCALA_INDEX) {
+            if (mancalaLayout == null)
+                mancalaLayout = new StoneLayout(getMancalaStyle(), getStoneStyle());
+
+            return mancalaLayout;
+        }
+
+        if (pitLayout == null)
+            pitLayout = new StoneLayout(getPitStyle(), getStoneStyle());
+
+        return pitLayout;
+    }
+
+    /**
+     * Draw a stone with the stone shape of this style.
+     *
+     * @param g2 the graphics engine that will be used to draw the stone.
+     * @param stone The stone, which provides the color.
+     * @param x The x-coordinate of the stone.
+     * @param y The y-coordinate of the stone.
+     */
+    public void drawStone(Graphics2D g2, Stone stone, int x, int y) {
+        ContainingShape stoneStyle = getStoneStyle();
+        int dx = x - stoneStyle.getX();
+        int dy = y - stoneStyle.getY();
+        g2.setColor(stone.getColor());
+        g2.translate(dx, dy);
+        g2.fill(stoneStyle.getShape());
+        g2.translate(-dx, -dy);
+    }
+
     /**
      * @return The container using this strategy.
      */
@@ -1,18 +1,30 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.io.*;
 import javax.swing.*;
+import javax.swing.event.*;
 
 /**
  * This is the overall view of the Mancala board. Some of its views will be delegated to the StoneContainerView.
  *
+ * Every game is recorded as it is played and can be saved. A saved game can be loaded as a replay and scrubbed
+ * through with a slider; play can then continue from any of its positions.
+ *
+ * With hints turned on, the score of every move of the player to move is shown below its pit and the best move is
+ * outlined. The hints are analyzed in the background by a HintAnalyzer whenever the position changes.
+ *
  * @author David Tang, Jonathan Yee, Stefan Schmainta
  */
 public class BoardView extends JFrame {
-    public static final int PLAYER_ONE_MANCALA_INDEX = 6;
-    public static final int PLAYER_TWO_MANCALA_INDEX = 13;
+    public static final int PLAYER_ONE_MANCALA_INDEX = GameState.PLAYER_ONE_MANCALA_INDEX;
+    public static final int PLAYER_TWO_MANCALA_INDEX = GameState.PLAYER_TWO_MANCALA_INDEX;
 
     private BoardStyle style;
     private Model model;
+    private EnginePlayer enginePlayer;
+    private SowingAnimator animator;
+    private HintAnalyzer hintAnalyzer;
+    private Analysis analysis;
     private JPanel gamePanel;
     private JPanel pitsPanel;
     private JPanel buttonPanel;
@@ -25,6 +37,16 @@ public class BoardView extends JFrame {
     private JButton takeBackButton;
     private JButton circleStyleButton;
     private JButton squareStyleButton;
+    private JCheckBox computerOpponentBox;
+    private JCheckBox hintsBox;
+    private JButton saveGameButton;
+    private JButton loadReplayButton;
+    private JPanel replayPanel;
+    private JSlider replaySlider;
+    private JLabel replayLabel;
+    private JButton playFromHereButton;
+    private GameRecord record;
+    private ReplayIndex replay;
 
     /**
      * Constructor that initializes privates attributes.
@@ -32,7 +54,12 @@ public class BoardView extends JFrame {
     public BoardView(Model model) {
         style = null;
         this.model = model;
+        enginePlayer = new EnginePlayer(model);
+        animator = new SowingAnimator(model);
+        hintAnalyzer = new HintAnalyzer(this);
+        analysis = null;
         model.setPrimaryView(this);
+        model.setAnimator(animator);
         setupBoard();
     }
 
@@ -51,6 +78,16 @@ public class BoardView extends JFrame {
         takeBackButton = new JButton("Take Back Move");
         circleStyleButton = new JButton("Circle Style");
         squareStyleButton = new JButton("Square Style");
+        computerOpponentBox = new JCheckBox("Computer Opponent");
+        hintsBox = new JCheckBox("Show Hints");
+        saveGameButton = new JButton("Save Game");
+        loadReplayButton = new JButton("Load Replay");
+        replayPanel = new JPanel();
+        replaySlider = new JSlider(0, 0, 0);
+        replayLabel = new JLabel();
+        playFromHereButton = new JButton("Play From Here");
+        record = null;
+        replay = null;
         
         for (int i = 0; i < (Model.PITS_PER_PLAYER + 1) * 2; i++) {
             playerPits[i] = new StoneContainerView(model, this);
@@ -89,11 +126,25 @@ public class BoardView extends JFrame {
         buttonPanel.add(circleStyleButton);
         buttonPanel.add(squareStyleButton);
         buttonPanel.add(takeBackButton);
+        buttonPanel.add(computerOpponentBox);
+        buttonPanel.add(hintsBox);
+        buttonPanel.add(saveGameButton);
+        buttonPanel.add(loadReplayButton);
+        buttonPanel.add(replayPanel);
+
+        replayPanel.add(replaySlider);
+        replayPanel.add(replayLabel);
+        replayPanel.add(playFromHereButton);
+        replayPanel.setVisible(false);
         
         newGameButton.addActionListener(new
             ActionListener() {
                 public void actionPerformed(ActionEvent e) {
                     int startStones =  Integer.parseInt(((String) dropDownList.getSelectedItem()));
+                    enginePlayer.newGame();
+                    animator.finish();
+                    stopReplay();
+                    record = new GameRecord(startStones);
                     model.resetTakeBackCount();
                     model.setFirstPlayerTurn(true);
                     model.setGameNotFinished();
@@ -104,13 +155,13 @@ public class BoardView extends JFrame {
                         
                         for (int j = 0; j < startStones; j++)
                             if (i != PLAYER_ONE_MANCALA_INDEX && i != PLAYER_TWO_MANCALA_INDEX) {
-                                ContainingShape stone = style.getStoneStyle().clone();
-                                stone.randomizeColor();
-                                model.addStone(stone, i);
+                                model.addStone(Stone.random(), i);
                             }
                     }
                     
                     repaint();
+                    enginePlayer.moveMade();
+                    positionChanged();
                 }
             });
         
@@ -136,11 +187,29 @@ public class BoardView extends JFrame {
                  }
              });
 
+        computerOpponentBox.addActionListener(new
+            ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    enginePlayer.setEnabled(computerOpponentBox.isSelected());
+                    positionChanged();
+                }
+            });
+
+        hintsBox.addActionListener(new
+            ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    positionChanged();
+                }
+            });
+
         takeBackButton.setEnabled(false);
         takeBackButton.addActionListener(new
             ActionListener() {
                 public void actionPerformed(ActionEvent e) {
                     if (model.getPreviousPosition() != null && model.takeBackAllowed()) {
+                        enginePlayer.reset();
+                        animator.finish();
+                        record.truncate(record.getMoveCount() - 1);
                         model.returnToOldTakeBackCount();
                         model.incrementTakeBackCount();
                         model.setFirstPlayerTurn(model.getPreviousPosition().isFirstPlayerTurn());
@@ -157,16 +226,175 @@ public class BoardView extends JFrame {
                         applyStyle();
                         takeBackButton.setEnabled(false);
                         model.clearPreviousPosition();
+                        enginePlayer.moveMade();
+                        positionChanged();
                     }
                 }
             });
         
+        saveGameButton.addActionListener(new
+            ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    if (record == null) {
+                        JOptionPane.showMessageDialog(BoardView.this, "There is no game to save.");
+                        return;
+                    }
+
+                    JFileChooser chooser = new JFileChooser();
+
+                    if (chooser.showSaveDialog(BoardView.this) == JFileChooser.APPROVE_OPTION) {
+                        try {
+                            record.save(chooser.getSelectedFile());
+                        } catch (IOException ex) {
+                            JOptionPane.showMessageDialog(BoardView.this, ex.getMessage());
+                        }
+                    }
+                }
+            });
+
+        loadReplayButton.addActionListener(new
+            ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    JFileChooser chooser = new JFileChooser();
+
+                    if (chooser.showOpenDialog(BoardView.this) == JFileChooser.APPROVE_OPTION) {
+                        try {
+                            startReplay(GameRecord.load(chooser.getSelectedFile()));
+                        } catch (IOException ex) {
+                            JOptionPane.showMessageDialog(BoardView.this, ex.getMessage());
+                        }
+                    }
+                }
+            });
+
+        replaySlider.addChangeListener(new
+            ChangeListener() {
+                public void stateChanged(ChangeEvent e) {
+                    if (replay != null)
+                        showReplayPly(replaySlider.getValue());
+                }
+            });
+
+        playFromHereButton.addActionListener(new
+            ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    if (replay != null) {
+                        record = replay.getRecord().copy();
+                        record.truncate(replaySlider.getValue());
+                        stopReplay();
+                        model.clearPreviousPosition();
+                        takeBackButton.setEnabled(false);
+                        enginePlayer.moveMade();
+                        positionChanged();
+                    }
+                }
+            });
+
         setSize(1300, 800);
         setTitle("Mancala");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setVisible(true);
         add(gamePanel);
+        setGlassPane(animator);
+        animator.setVisible(true);
         applyStyle();
+        setVisible(true); //Show the frame once, after its content is complete
+    }
+
+    /**
+     * Show a recorded game from its first position. Moves cannot be made until play continues from one of its
+     * positions.
+     *
+     * @param game The game to replay.
+     */
+    public void startReplay(GameRecord game) {
+        enginePlayer.reset();
+        animator.finish();
+        replay = new ReplayIndex(game);
+        replaySlider.setMaximum(replay.getPlyCount());
+        replaySlider.setValue(0);
+        replayPanel.setVisible(true);
+        takeBackButton.setEnabled(false);
+        showReplayPly(0);
+        validate();
+    }
+
+    /**
+     * Leave the replay, keeping the position it shows.
+     */
+    public void stopReplay() {
+        replay = null;
+        replayPanel.setVisible(false);
+        validate();
+    }
+
+    /**
+     * Seek the replay to a ply and show its position.
+     *
+     * @param ply The number of moves played.
+     */
+    private void showReplayPly(int ply) {
+        model.setPosition(replay.seek(ply));
+        replayLabel.setText("Move " + ply + " of " + replay.getPlyCount());
+        positionChanged();
+    }
+
+    /**
+     * Called whenever the position on the board changes. Drop the hints of the old position and, with hints turned
+     * on, analyze the new one unless the computer opponent is about to think about it.
+     */
+    public void positionChanged() {
+        hintAnalyzer.cancel();
+        analysis = null;
+
+        if (hintsBox.isSelected() && !model.isGameFinished() && (isReplaying() || !enginePlayer.isEngineTurn()))
+            hintAnalyzer.analyze(model.toGameState());
+
+        repaintPits();
+    }
+
+    /**
+     * Show the hints of a position if it is still on the board.
+     *
+     * @param position The position that was analyzed.
+     * @param analysis The analysis of the position.
+     */
+    public void showAnalysis(GameState position, Analysis analysis) {
+        if (hintsBox.isSelected() && position.hash() == model.toGameState().hash()) {
+            this.analysis = analysis;
+            repaintPits();
+        }
+    }
+
+    /**
+     * @return The hints of the position on the board, or null.
+     */
+    public Analysis getAnalysis() {
+        return analysis;
+    }
+
+    /**
+     * Repaint every pit and mancala.
+     */
+    private void repaintPits() {
+        for (int i = 0; i < (Model.PITS_PER_PLAYER + 1) * 2; i++)
+            playerPits[i].repaint();
+    }
+
+    /**
+     * @return True if a recorded game is being replayed. False otherwise.
+     */
+    public boolean isReplaying() {
+        return replay != null;
+    }
+
+    /**
+     * Add a move to the record of the current game.
+     *
+     * @param pit The pit that is being played.
+     */
+    public void recordMove(int pit) {
+        if (record != null)
+            record.addMove(pit);
     }
 
     /**
@@ -176,6 +404,7 @@ public class BoardView extends JFrame {
         if (style == null)
             style = new CircleStyle(this);
         
+        animator.setStyle(style); //Restyling replaces every stone
         style.styleBoard();
     }
 
@@ -210,6 +439,20 @@ public class BoardView extends JFrame {
         takeBackButton.setEnabled(true);
     }
 
+    /**
+     * @return The computer opponent of the board.
+     */
+    public EnginePlayer getEnginePlayer() {
+        return enginePlayer;
+    }
+
+    /**
+     * @return The glass pane that animates sowing.
+     */
+    public SowingAnimator getAnimator() {
+        return animator;
+    }
+
     /**
      * @return The style that is applied to the view.
      */
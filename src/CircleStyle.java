@@ -1,4 +1,3 @@
-import java.util.*;
 import java.awt.*;
 
 /**
@@ -41,16 +40,7 @@ public class CircleStyle extends BoardStyle {
             if (i != BoardView.PLAYER_ONE_MANCALA_INDEX && i != BoardView.PLAYER_TWO_MANCALA_INDEX)
                 model.getView(i).setContainer(pitStyle.clone());
 
-        for (int i = 0; i < (Model.PITS_PER_PLAYER + 1) * 2; i++) {
-            int size = model.getModel(i).size();
-            ArrayList<ContainingShape> oldStones = model.removeAllContainerStones(i);
-
-            for (int j = 0; j < size; j++) {
-                ContainingShape newStone = stoneStyle.clone();
-                newStone.setColor(oldStones.get(j).getColor());
-                model.addStone(newStone, i);
-            }
-        }
+        getContainer().repaint(); //Stones take their shape from the style when they are drawn
     }
 
     /**
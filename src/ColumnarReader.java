@@ -0,0 +1,271 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+/**
+ * Reads the chunk files written by ColumnarWriter, one chunk at a time. Only the columns asked for are decoded, and
+ * the chunk is mapped rather than read, so the pages of the other columns are never touched. The arrays of a chunk
+ * are reused for the next one, so reading billions of rows allocates nothing per row.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class ColumnarReader {
+    public static final int ALL_COLUMNS = (1 << ColumnarWriter.COLUMN_COUNT) - 1;
+
+    private final File[] chunks;
+    private final int columns;
+    private final int[] columnLengths;
+    private int nextChunk;
+    private byte[] pits;
+    private byte[] sides;
+    private int[] scores;
+    private byte[] moves;
+    private byte[] results;
+    private int rows;
+
+    /**
+     * Constructor that finds every chunk file of a directory.
+     *
+     * @param directory The directory holding the chunk files.
+     * @param columns The columns to decode, like 1 &lt;&lt; ColumnarWriter.PITS | 1 &lt;&lt; ColumnarWriter.RESULT.
+     * @throws IOException If the directory cannot be listed.
+     */
+    public ColumnarReader(File directory, int columns) throws IOException {
+        chunks = directory.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.endsWith(ColumnarWriter.SUFFIX);
+            }
+        });
+
+        if (chunks == null)
+            throw new IOException("Could not list " + directory);
+
+        Arrays.sort(chunks);
+        this.columns = columns;
+        columnLengths = new int[ColumnarWriter.COLUMN_COUNT];
+        nextChunk = 0;
+        pits = new byte[0];
+        sides = new byte[0];
+        scores = new int[0];
+        moves = new byte[0];
+        results = new byte[0];
+        rows = 0;
+    }
+
+    /**
+     * @return The number of chunk files.
+     */
+    public int getChunkCount() {
+        return chunks.length;
+    }
+
+    /**
+     * Decode the next chunk, replacing the rows of the previous one.
+     *
+     * @return True if a chunk was read. False if every chunk has been read.
+     * @throws IOException If the chunk cannot be read or is not a chunk file.
+     */
+    public boolean next() throws IOException {
+        if (nextChunk == chunks.length)
+            return false;
+
+        File file = chunks[nextChunk++];
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+
+        try {
+            ByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != ColumnarWriter.MAGIC)
+                throw new IOException(file + " is not a chunk file");
+
+            rows = buffer.getInt();
+            boolean compressed = (buffer.getInt() & ColumnarWriter.COMPRESSED) != 0;
+            ensureCapacity();
+            int offset = ColumnarWriter.HEADER_SIZE;
+
+            for (int i = 0; i < ColumnarWriter.COLUMN_COUNT; i++)
+                columnLengths[i] = buffer.getInt();
+
+            for (int i = 0; i < ColumnarWriter.COLUMN_COUNT; i++) {
+                if ((columns & 1 << i) != 0) {
+                    buffer.position(offset);
+                    decode(buffer, i, compressed);
+                }
+
+                offset += columnLengths[i];
+            }
+        } finally {
+            in.close();
+        }
+
+        return true;
+    }
+
+    /**
+     * @return The number of rows of the current chunk.
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * @return The stone counts of the current chunk. Row i starts at i * GameState.PIT_COUNT.
+     */
+    public byte[] getPits() {
+        return pits;
+    }
+
+    /**
+     * @param row The index of the row in the current chunk.
+     * @return True if the first player is to move. False otherwise.
+     */
+    public boolean isFirstPlayerTurn(int row) {
+        return sides[row] != 0;
+    }
+
+    /**
+     * @param row The index of the row in the current chunk.
+     * @return The search score from the point of view of the player to move.
+     */
+    public int getScore(int row) {
+        return scores[row];
+    }
+
+    /**
+     * @param row The index of the row in the current chunk.
+     * @return The best move found, or -1.
+     */
+    public int getBestMove(int row) {
+        return moves[row];
+    }
+
+    /**
+     * @param row The index of the row in the current chunk.
+     * @return The result for the player to move: PositionDataset.LOST, TIE or WON.
+     */
+    public int getResult(int row) {
+        return results[row];
+    }
+
+    /**
+     * Make the arrays big enough for the rows of the current chunk.
+     */
+    private void ensureCapacity() {
+        if (scores.length >= rows)
+            return;
+
+        pits = new byte[rows * GameState.PIT_COUNT];
+        sides = new byte[rows];
+        scores = new int[rows];
+        moves = new byte[rows];
+        results = new byte[rows];
+    }
+
+    /**
+     * Decode one column.
+     *
+     * @param buffer The chunk, positioned at the start of the column.
+     * @param column The column.
+     * @param compressed Whether or not the columns are delta and varint encoded.
+     */
+    private void decode(ByteBuffer buffer, int column, boolean compressed) {
+        if (column == ColumnarWriter.PITS) {
+            if (!compressed)
+                buffer.get(pits, 0, rows * GameState.PIT_COUNT);
+            else
+                for (int row = 0; row < rows; row++) {
+                    int offset = row * GameState.PIT_COUNT;
+                    int mask = getVarint(buffer);
+
+                    for (int i = 0; i < GameState.PIT_COUNT; i++) {
+                        int previous = row == 0 ? 0 : pits[offset - GameState.PIT_COUNT + i];
+                        pits[offset + i] = (byte) ((mask & 1 << i) == 0 ? previous : previous + unzigzag(getVarint(buffer)));
+                    }
+                }
+        }
+        else if (column == ColumnarWriter.SIDE)
+            decodeBits(buffer, sides, 1);
+        else if (column == ColumnarWriter.SCORE) {
+            int previous = 0;
+
+            for (int row = 0; row < rows; row++) {
+                scores[row] = compressed ? previous + unzigzag(getVarint(buffer)) : buffer.getInt();
+                previous = scores[row];
+            }
+        }
+        else if (column == ColumnarWriter.MOVE)
+            buffer.get(moves, 0, rows);
+        else if (compressed)
+            decodeBits(buffer, results, 2);
+        else
+            buffer.get(results, 0, rows);
+    }
+
+    /**
+     * Unpack small values from bits, lowest bits first.
+     *
+     * @param buffer The chunk, positioned at the start of the column.
+     * @param values The array receiving one value per row.
+     * @param bits The number of bits per value, a divisor of 8.
+     */
+    private void decodeBits(ByteBuffer buffer, byte[] values, int bits) {
+        int start = buffer.position();
+        int mask = (1 << bits) - 1;
+
+        for (int row = 0; row < rows; row++) {
+            int bit = row * bits;
+            values[row] = (byte) (buffer.get(start + (bit >> 3)) >> (bit & 7) & mask);
+        }
+    }
+
+    /**
+     * @param buffer The chunk, positioned at a variable length int.
+     * @return The int, read as unsigned.
+     */
+    private static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+
+        return value;
+    }
+
+    /**
+     * @param value A value with its sign in the lowest bit.
+     * @return The signed value.
+     */
+    private static int unzigzag(int value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    /**
+     * Read the positions and results of every chunk of a directory, for tuning the evaluation.
+     *
+     * @param directory The directory holding the chunk files.
+     * @return The dataset.
+     * @throws IOException If a chunk cannot be read.
+     */
+    public static PositionDataset readDataset(File directory) throws IOException {
+        ColumnarReader reader = new ColumnarReader(directory,
+                1 << ColumnarWriter.PITS | 1 << ColumnarWriter.SIDE | 1 << ColumnarWriter.RESULT);
+        PositionDataset dataset = new PositionDataset(ColumnarWriter.CHUNK_ROWS);
+        GameState state = new GameState(0);
+
+        while (reader.next()) {
+            for (int row = 0; row < reader.size(); row++) {
+                state.copyFrom(reader.pits, row * GameState.PIT_COUNT, reader.isFirstPlayerTurn(row), false);
+                dataset.add(state, reader.getResult(row));
+            }
+        }
+
+        return dataset;
+    }
+}
@@ -0,0 +1,532 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Writes training positions column by column: the stone counts, the player to move, the search score, the best move
+ * and the final result of the game. Rows are collected in one primitive array per column and written as chunk files
+ * of at least CHUNK_ROWS rows, so a training pipeline can map one chunk at a time and only decode the columns it
+ * needs. A game never spans two chunks.
+ *
+ * A chunk is written through a memory mapping, under a temporary name that is renamed once the chunk is complete, so
+ * readers never see half a chunk. Everything is little endian. The header is the magic number, the row count, the
+ * flags and the byte length of every column; the columns follow in order.
+ *
+ * <pre>
+ *             raw                      compressed
+ * pits        14 bytes per row         varint mask of the pits that changed since the previous row, then the zigzag
+ *                                      varint difference of every changed pit
+ * side        1 bit per row, 1 if the first player is to move
+ * score       4 byte int per row       zigzag varint difference from the previous row's score
+ * move        1 byte per row, -1 if there is no move
+ * result      1 byte per row           2 bits per row
+ * </pre>
+ *
+ * One writer must only be used by one thread at a time; the export methods give every worker thread its own writer
+ * and file prefix.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class ColumnarWriter {
+    public static final int MAGIC = 0x4C4F434D; //"MCOL"
+    public static final int CHUNK_ROWS = 1 << 16;
+    public static final int COMPRESSED = 1;
+    public static final int PITS = 0;
+    public static final int SIDE = 1;
+    public static final int SCORE = 2;
+    public static final int MOVE = 3;
+    public static final int RESULT = 4;
+    public static final int COLUMN_COUNT = 5;
+    public static final int HEADER_SIZE = 12 + COLUMN_COUNT * 4;
+    public static final String SUFFIX = ".col";
+
+    private final File directory;
+    private final String prefix;
+    private final boolean compressed;
+    private final int[] columnLengths;
+    private byte[] pits;
+    private byte[] sides;
+    private int[] scores;
+    private byte[] moves;
+    private byte[] results;
+    private byte[] encoded;
+    private int length;
+    private int rows;
+    private int gameStart;
+    private int chunkNumber;
+    private long rowCount;
+
+    /**
+     * Constructor that initializes all private attributes.
+     *
+     * @param directory The directory to write the chunk files to.
+     * @param prefix The start of the chunk file names, which must differ between writers of the same directory.
+     * @param compressed Whether or not to delta and varint encode the columns.
+     * @throws IOException If the directory cannot be created.
+     */
+    public ColumnarWriter(File directory, String prefix, boolean compressed) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Could not create " + directory);
+
+        this.directory = directory;
+        this.prefix = prefix;
+        this.compressed = compressed;
+        columnLengths = new int[COLUMN_COUNT];
+        pits = new byte[CHUNK_ROWS * GameState.PIT_COUNT];
+        sides = new byte[CHUNK_ROWS];
+        scores = new int[CHUNK_ROWS];
+        moves = new byte[CHUNK_ROWS];
+        results = new byte[CHUNK_ROWS];
+        encoded = new byte[CHUNK_ROWS * 8];
+        rows = 0;
+        gameStart = 0;
+        chunkNumber = 0;
+        rowCount = 0;
+    }
+
+    /**
+     * Add a position of the current game. Its result is filled in by endGame.
+     *
+     * @param state The position.
+     * @param score The search score from the point of view of the player to move.
+     * @param bestMove The best move found, or -1.
+     */
+    public void add(GameState state, int score, int bestMove) {
+        if (rows == scores.length)
+            grow();
+
+        state.copyPits(pits, rows * GameState.PIT_COUNT);
+        sides[rows] = (byte) (state.isFirstPlayerTurn() ? 1 : 0);
+        scores[rows] = score;
+        moves[rows] = (byte) bestMove;
+        rows++;
+    }
+
+    /**
+     * Label every position of the current game with its result and write a chunk if enough rows are collected.
+     *
+     * @param storeDifference The first player's store minus the second player's at the end of the game.
+     * @throws IOException If a chunk cannot be written.
+     */
+    public void endGame(int storeDifference) throws IOException {
+        for (int i = gameStart; i < rows; i++)
+            results[i] = (byte) (storeDifference == 0 ? PositionDataset.TIE :
+                    (storeDifference > 0) == (sides[i] != 0) ? PositionDataset.WON : PositionDataset.LOST);
+
+        gameStart = rows;
+
+        if (rows >= CHUNK_ROWS)
+            flush();
+    }
+
+    /**
+     * Drop the positions of a game that did not finish, since they have no result.
+     */
+    public void discardGame() {
+        rows = gameStart;
+    }
+
+    /**
+     * Write the finished games that are left. An unfinished game is dropped.
+     *
+     * @throws IOException If the chunk cannot be written.
+     */
+    public void close() throws IOException {
+        discardGame();
+
+        if (rows > 0)
+            flush();
+    }
+
+    /**
+     * @return The number of rows written to chunk files.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Make room for more rows, since a chunk is only cut between games.
+     */
+    private void grow() {
+        pits = Arrays.copyOf(pits, pits.length * 2);
+        sides = Arrays.copyOf(sides, sides.length * 2);
+        scores = Arrays.copyOf(scores, scores.length * 2);
+        moves = Arrays.copyOf(moves, moves.length * 2);
+        results = Arrays.copyOf(results, results.length * 2);
+    }
+
+    /**
+     * Encode the collected rows and write them as a chunk file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    private void flush() throws IOException {
+        length = 0;
+        encodePits();
+        columnLengths[PITS] = length;
+        encodeBits(sides, 1);
+        columnLengths[SIDE] = length - columnLengths[PITS];
+        encodeScores();
+        columnLengths[SCORE] = length - columnLengths[PITS] - columnLengths[SIDE];
+        reserve(rows);
+        System.arraycopy(moves, 0, encoded, length, rows);
+        length += rows;
+        columnLengths[MOVE] = rows;
+        int before = length;
+
+        if (compressed)
+            encodeBits(results, 2);
+        else {
+            reserve(rows);
+            System.arraycopy(results, 0, encoded, length, rows);
+            length += rows;
+        }
+
+        columnLengths[RESULT] = length - before;
+
+        String name = String.format("%s-%06d%s", prefix, chunkNumber++, SUFFIX);
+        File temporary = new File(directory, name + ".tmp");
+        RandomAccessFile out = new RandomAccessFile(temporary, "rw");
+
+        try {
+            out.setLength(HEADER_SIZE + length);
+            MappedByteBuffer buffer = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + length);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC);
+            buffer.putInt(rows);
+            buffer.putInt(compressed ? COMPRESSED : 0);
+
+            for (int columnLength : columnLengths)
+                buffer.putInt(columnLength);
+
+            buffer.put(encoded, 0, length);
+        } finally {
+            out.close();
+        }
+
+        if (!temporary.renameTo(new File(directory, name)))
+            throw new IOException("Could not rename " + temporary);
+
+        rowCount += rows;
+        rows = 0;
+        gameStart = 0;
+    }
+
+    /**
+     * Encode the stone counts.
+     */
+    private void encodePits() {
+        if (!compressed) {
+            reserve(rows * GameState.PIT_COUNT);
+            System.arraycopy(pits, 0, encoded, length, rows * GameState.PIT_COUNT);
+            length += rows * GameState.PIT_COUNT;
+            return;
+        }
+
+        for (int row = 0; row < rows; row++) {
+            int offset = row * GameState.PIT_COUNT;
+            int mask = 0;
+
+            for (int i = 0; i < GameState.PIT_COUNT; i++)
+                if (pits[offset + i] != (row == 0 ? 0 : pits[offset - GameState.PIT_COUNT + i]))
+                    mask |= 1 << i;
+
+            putVarint(mask);
+
+            for (int i = 0; i < GameState.PIT_COUNT; i++)
+                if ((mask & 1 << i) != 0)
+                    putVarint(zigzag(pits[offset + i] - (row == 0 ? 0 : pits[offset - GameState.PIT_COUNT + i])));
+        }
+    }
+
+    /**
+     * Encode the scores.
+     */
+    private void encodeScores() {
+        if (!compressed) {
+            reserve(rows * 4);
+
+            for (int row = 0; row < rows; row++) {
+                int score = scores[row];
+                encoded[length++] = (byte) score;
+                encoded[length++] = (byte) (score >> 8);
+                encoded[length++] = (byte) (score >> 16);
+                encoded[length++] = (byte) (score >> 24);
+            }
+
+            return;
+        }
+
+        int previous = 0;
+
+        for (int row = 0; row < rows; row++) {
+            putVarint(zigzag(scores[row] - previous));
+            previous = scores[row];
+        }
+    }
+
+    /**
+     * Pack small values into bits, lowest bits first.
+     *
+     * @param values The values, one per row.
+     * @param bits The number of bits per value, a divisor of 8.
+     */
+    private void encodeBits(byte[] values, int bits) {
+        int size = (rows * bits + 7) / 8;
+        reserve(size);
+        Arrays.fill(encoded, length, length + size, (byte) 0);
+
+        for (int row = 0; row < rows; row++) {
+            int bit = row * bits;
+            encoded[length + (bit >> 3)] |= values[row] << (bit & 7);
+        }
+
+        length += size;
+    }
+
+    /**
+     * Append a variable length int: 7 bits per byte, lowest first, with the top bit set on all but the last byte.
+     *
+     * @param value The value, read as unsigned.
+     */
+    private void putVarint(int value) {
+        reserve(5);
+
+        while ((value & ~0x7F) != 0) {
+            encoded[length++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+
+        encoded[length++] = (byte) value;
+    }
+
+    /**
+     * @param size The number of bytes about to be appended.
+     */
+    private void reserve(int size) {
+        if (length + size > encoded.length)
+            encoded = Arrays.copyOf(encoded, Math.max(encoded.length * 2, length + size));
+    }
+
+    /**
+     * @param value A signed value.
+     * @return The value with its sign in the lowest bit, so small negative values encode as short varints too.
+     */
+    private static int zigzag(int value) {
+        return value << 1 ^ value >> 31;
+    }
+
+    /**
+     * Export self-play games on every core. Every game starts with a few random moves so the games differ, then both
+     * players search to a fixed depth. Every position is searched, including the random ones.
+     *
+     * @param directory The directory to write the chunk files to.
+     * @param games The number of games to play.
+     * @param depth The search depth.
+     * @param randomMoves The number of random moves at the start of every game.
+     * @param seed The seed of the random moves.
+     * @param compressed Whether or not to delta and varint encode the columns.
+     * @return The number of rows written.
+     * @throws IOException If a chunk cannot be written.
+     * @throws InterruptedException If the export is interrupted.
+     */
+    public static long exportSelfPlay(final File directory, int games, final int depth, final int randomMoves,
+            long seed, final boolean compressed) throws IOException, InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<Long>> parts = new ArrayList<Future<Long>>();
+        final String run = Long.toString(System.currentTimeMillis(), 36);
+
+        for (int t = 0; t < threads; t++) {
+            final int part = t;
+            final int count = games / threads + (t < games % threads ? 1 : 0);
+            final Random rand = new Random(seed + t);
+
+            parts.add(pool.submit(new Callable<Long>() {
+                public Long call() throws IOException {
+                    ColumnarWriter writer = new ColumnarWriter(directory, "selfplay-" + run + "-" + part, compressed);
+                    SearchEngine engine = new SearchEngine(16);
+
+                    for (int g = 0; g < count; g++)
+                        writer.addSelfPlayGame(engine, 4, depth, randomMoves, rand);
+
+                    writer.close();
+                    return writer.getRowCount();
+                }
+            }));
+        }
+
+        return collect(pool, parts);
+    }
+
+    /**
+     * Export saved games on every core, with every position searched to a fixed depth. Games that did not finish are
+     * skipped, since they have no result.
+     *
+     * @param directory The directory to write the chunk files to.
+     * @param files The game record files.
+     * @param depth The search depth.
+     * @param compressed Whether or not to delta and varint encode the columns.
+     * @return The number of rows written.
+     * @throws IOException If a record cannot be read or a chunk cannot be written.
+     * @throws InterruptedException If the export is interrupted.
+     */
+    public static long exportRecords(final File directory, final java.util.List<File> files, final int depth,
+            final boolean compressed) throws IOException, InterruptedException {
+        final int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<Long>> parts = new ArrayList<Future<Long>>();
+        final String run = Long.toString(System.currentTimeMillis(), 36);
+
+        for (int t = 0; t < threads; t++) {
+            final int part = t;
+
+            parts.add(pool.submit(new Callable<Long>() {
+                public Long call() throws IOException {
+                    ColumnarWriter writer = new ColumnarWriter(directory, "records-" + run + "-" + part, compressed);
+                    SearchEngine engine = new SearchEngine(16);
+
+                    for (int i = part; i < files.size(); i += threads)
+                        writer.addRecord(engine, GameRecord.load(files.get(i)), depth);
+
+                    writer.close();
+                    return writer.getRowCount();
+                }
+            }));
+        }
+
+        return collect(pool, parts);
+    }
+
+    /**
+     * Play a self-play game and add every position of it, searched to a fixed depth.
+     *
+     * @param engine The search engine, which plays both sides.
+     * @param stonesPerPit The number of starting stones in every pit.
+     * @param depth The search depth.
+     * @param randomMoves The number of random moves at the start of the game.
+     * @param rand The source of the random moves.
+     * @throws IOException If a chunk cannot be written.
+     */
+    public void addSelfPlayGame(SearchEngine engine, int stonesPerPit, int depth, int randomMoves, Random rand)
+            throws IOException {
+        addGame(engine, new GameState(stonesPerPit), depth, null, randomMoves, rand);
+    }
+
+    /**
+     * Add every position of a saved game, searched to a fixed depth. A game that did not finish is dropped.
+     *
+     * @param engine The search engine.
+     * @param record The moves of the game.
+     * @param depth The search depth.
+     * @throws IOException If a chunk cannot be written.
+     */
+    public void addRecord(SearchEngine engine, GameRecord record, int depth) throws IOException {
+        addGame(engine, new GameState(record.getStonesPerPit()), depth, record, 0, null);
+    }
+
+    /**
+     * Search and add every position of one game.
+     *
+     * @param engine The search engine.
+     * @param state The starting position, which is played to the end.
+     * @param depth The search depth.
+     * @param record The moves of a saved game, or null to play the searched moves.
+     * @param randomMoves The number of random moves at the start of a self-play game.
+     * @param rand The source of the random moves.
+     * @throws IOException If a chunk cannot be written.
+     */
+    private void addGame(SearchEngine engine, GameState state, int depth, GameRecord record, int randomMoves,
+            Random rand) throws IOException {
+        for (int ply = 0; !state.isFinished(); ply++) {
+            if (record != null && ply == record.getMoveCount()) {
+                discardGame();
+                return;
+            }
+
+            SearchResult result = engine.search(state, depth, 0, null);
+            add(state, result.getScore(), result.getBestMove());
+            int move;
+
+            if (record != null)
+                move = record.getMove(ply);
+            else if (ply < randomMoves)
+                do {
+                    move = rand.nextInt(GameState.PIT_COUNT);
+                } while (!state.isLegalMove(move));
+            else
+                move = result.getBestMove();
+
+            state.play(move);
+        }
+
+        endGame(state.getStoreDifference());
+    }
+
+    /**
+     * Wait for every worker and add up their rows.
+     *
+     * @param pool The pool running the workers.
+     * @param parts The row count of every worker.
+     * @return The number of rows written.
+     * @throws IOException If a worker could not read or write a file.
+     * @throws InterruptedException If the export is interrupted.
+     */
+    private static long collect(ExecutorService pool, ArrayList<Future<Long>> parts)
+            throws IOException, InterruptedException {
+        long rows = 0;
+
+        try {
+            for (Future<Long> part : parts)
+                rows += part.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException)
+                throw (IOException) ex.getCause();
+
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        return rows;
+    }
+
+    /**
+     * Export self-play or saved games.
+     *
+     * @param args "selfplay", the directory, the number of games, and optionally the depth, the number of random moves
+     *             and "compress"; or "records", the directory, the depth, optionally "compress", and the record files.
+     * @throws Exception If the games cannot be exported.
+     */
+    public static void main(String[] args) throws Exception {
+        java.util.List<String> options = new ArrayList<String>(Arrays.asList(args));
+        boolean compress = options.remove("compress");
+        long start = System.nanoTime();
+        long rows;
+
+        if (options.size() >= 3 && options.get(0).equals("selfplay")) {
+            int depth = options.size() > 3 ? Integer.parseInt(options.get(3)) : 6;
+            int randomMoves = options.size() > 4 ? Integer.parseInt(options.get(4)) : 6;
+            rows = exportSelfPlay(new File(options.get(1)), Integer.parseInt(options.get(2)), depth, randomMoves,
+                    System.nanoTime(), compress);
+        }
+        else if (options.size() >= 4 && options.get(0).equals("records")) {
+            ArrayList<File> files = new ArrayList<File>();
+
+            for (String name : options.subList(3, options.size()))
+                files.add(new File(name));
+
+            rows = exportRecords(new File(options.get(1)), files, Integer.parseInt(options.get(2)), compress);
+        }
+        else {
+            System.err.println("Usage: selfplay directory games [depth] [randomMoves] [compress] | " +
+                    "records directory depth [compress] file...");
+            return;
+        }
+
+        System.out.printf("%d rows in %.1fs%n", rows, (System.nanoTime() - start) / 1e9);
+    }
+}
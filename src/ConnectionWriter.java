@@ -0,0 +1,143 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * The outgoing side of a server connection. Lines are put on a bounded queue without ever blocking the caller and
+ * are written in batches with a single flush by a task on a shared executor. When a slow client lets the queue fill
+ * up, the queued moves are discarded and the connection is told so it can collapse them into fresh snapshots. Every
+ * other line, like the answer to a NEW or an ERROR, is kept. If those lines alone fill the queue, the client is
+ * dropped.
+ *
+ * Socket writes block once a client stops reading, and a blocked write would hold one of the few shared threads for
+ * good. Every batch therefore has a deadline of WRITE_TIMEOUT_MILLIS; a client that does not take a batch in time is
+ * dropped, which closes its socket and frees the thread.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class ConnectionWriter implements Runnable {
+    public static final int QUEUE_CAPACITY = 1024;
+    public static final int BATCH_SIZE = 128;
+    public static final long WRITE_TIMEOUT_MILLIS = 1000;
+
+    private final ServerConnection connection;
+    private final Writer out;
+    private final Executor executor;
+    private final ScheduledExecutorService deadlines;
+    private final Runnable timeout;
+    private final ArrayBlockingQueue<String> queue;
+    private final ArrayList<String> batch;
+    private final AtomicBoolean scheduled;
+
+    /**
+     * Constructor that initializes all private attributes.
+     *
+     * @param connection The connection that owns this writer.
+     * @param out The stream to the client.
+     * @param executor The shared executor that will write the batches.
+     * @param deadlines The shared scheduler that drops the client when a batch is not written in time.
+     */
+    public ConnectionWriter(final ServerConnection connection, Writer out, Executor executor,
+            ScheduledExecutorService deadlines) {
+        this.connection = connection;
+        this.out = out;
+        this.executor = executor;
+        this.deadlines = deadlines;
+        timeout = new Runnable() {
+            public void run() {
+                connection.close(); //Closing the socket makes the blocked write fail
+            }
+        };
+        queue = new ArrayBlockingQueue<String>(QUEUE_CAPACITY);
+        batch = new ArrayList<String>(BATCH_SIZE);
+        scheduled = new AtomicBoolean(false);
+    }
+
+    /**
+     * Queue a line to be sent. This never blocks.
+     *
+     * @param line The line to send.
+     * @return False if the queue was full and the queued moves were discarded. True otherwise.
+     */
+    public boolean offer(String line) {
+        if (!queue.offer(line)) {
+            if (discardMoves(line))
+                connection.overflowed();
+            else
+                connection.close();
+
+            schedule();
+            return false;
+        }
+
+        schedule();
+        return true;
+    }
+
+    /**
+     * Start writing on the executor, unless a task is already writing.
+     */
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true))
+            executor.execute(this);
+    }
+
+    /**
+     * Discard the queued moves, which the snapshots of the connection replace, and queue every other line again.
+     *
+     * @param line The line that did not fit into the queue.
+     * @return False if the other lines alone do not fit into the queue. True otherwise.
+     */
+    private synchronized boolean discardMoves(String line) {
+        ArrayList<String> queued = new ArrayList<String>(QUEUE_CAPACITY + 1);
+        queue.drainTo(queued);
+        queued.add(line);
+
+        for (String kept : queued)
+            if (!kept.startsWith(GameProtocol.MOVED + " ") && !queue.offer(kept))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Write the queued lines in batches until the queue is empty.
+     */
+    public void run() {
+        try {
+            while (true) {
+                batch.clear();
+                queue.drainTo(batch, BATCH_SIZE);
+
+                if (batch.isEmpty()) {
+                    scheduled.set(false);
+
+                    if (queue.isEmpty() || !scheduled.compareAndSet(false, true))
+                        break;
+
+                    continue;
+                }
+
+                ScheduledFuture<?> deadline = deadlines.schedule(timeout, WRITE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+                try {
+                    for (String line : batch) {
+                        out.write(line);
+                        out.write('\n');
+                    }
+
+                    out.flush();
+                } finally {
+                    deadline.cancel(false);
+                }
+
+                if (queue.isEmpty())
+                    connection.caughtUp();
+            }
+        } catch (IOException ex) {
+            queue.clear();
+            connection.close();
+        }
+    }
+}
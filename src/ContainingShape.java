@@ -1,5 +1,4 @@
 import java.awt.*;
-import java.util.*;
 
 /**
  * A shape capable of containing other shapes within itself.
@@ -152,14 +151,10 @@ public abstract class ContainingShape implements Cloneable {
     }
 
     /**
-     * Randomize the color of the containing shape.
+     * Give the containing shape a random color of the stone palette.
      */
     public void randomizeColor() {
-        Random rand = new Random();
-        float r = rand.nextFloat();
-        float g = rand.nextFloat();
-        float b = rand.nextFloat();
-        color = new Color(r, g, b);
+        color = Stone.random().getColor();
     }
 
     /**
@@ -0,0 +1,280 @@
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.swing.*;
+
+/**
+ * A computer opponent that plays the second player's pits of the board. The engine searches on its own thread and
+ * its move is played on the event dispatch thread, so the board never waits for it. The engine uses the network
+ * weights in mancala.nnue (or the file named by the mancala.network property) when there are any, otherwise the
+ * tuned weights in mancala.weights (or the mancala.weights property), otherwise the store difference.
+ *
+ * While the human is deciding, the engine ponders: it searches the position after the human's likely reply. The pit
+ * under the mouse cursor is taken as the likely reply, otherwise the reply the engine expects from its own search.
+ * If the human plays the pondered reply, the time spent pondering is credited to the TimeManager: the engine answers
+ * from the pondering result, or keeps searching only for whatever is left of its thinking time, with a warm
+ * transposition table either way.
+ *
+ * The engine plays on a clock of GAME_TIME_MILLIS per game plus INCREMENT_MILLIS per move, and a TimeManager splits
+ * the clock between the moves, so it answers forced and simple positions quickly and thinks longer where the best
+ * move is unclear.
+ *
+ * Before searching, the engine spends a few proof-number search nodes trying to prove a forced win. Once a win is
+ * proven it plays the proven moves, which the node table keeps proven from move to move.
+ *
+ * When the mancala.engine property is set, to "default" or to the command line of an engine that speaks the
+ * EngineProtocol, the moves are searched by that engine in a child process instead, without pondering or proofs. If
+ * the child process exits, the move is searched in this process and the engine is started again for the next move.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class EnginePlayer {
+    public static final long GAME_TIME_MILLIS = 30000;
+    public static final long INCREMENT_MILLIS = 500;
+    public static final long PROOF_NODES = 200000;
+    public static final int PREDICTED_REPLY = -1;
+
+    private final Model model;
+    private final SearchEngine engine;
+    private final ProofNumberSearch solver;
+    private final java.util.List<String> externalCommand;
+    private final ExecutorService engineThread;
+    private boolean enabled;
+    private int generation;
+    private int ponderPit;
+    private AtomicBoolean ponderStop;
+    private AtomicBoolean searchStop;
+
+    //Only touched on the engine thread
+    private ExternalEngine external;
+    private long clockMillis;
+    private GameState ponderedPosition;
+    private SearchResult ponderedResult;
+
+    /**
+     * Constructor that initializes all private attributes. The computer opponent starts disabled.
+     *
+     * @param model The model of the board the engine plays on.
+     */
+    public EnginePlayer(Model model) {
+        this.model = model;
+        engine = new SearchEngine();
+        engine.setEvaluator(Evaluator.loadDefault());
+        solver = new ProofNumberSearch();
+        String command = System.getProperty("mancala.engine");
+        externalCommand = command == null ? null : Tournament.parseCommand(command);
+
+        engineThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "engine");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        enabled = false;
+        clockMillis = GAME_TIME_MILLIS;
+        generation = 0;
+        ponderPit = PREDICTED_REPLY;
+        ponderStop = new AtomicBoolean(true);
+        searchStop = new AtomicBoolean(true);
+    }
+
+    /**
+     * @return True if the computer opponent plays. False otherwise.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turn the computer opponent on or off.
+     *
+     * @param enabled Whether or not the computer opponent plays.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        reset();
+
+        if (enabled)
+            moveMade();
+    }
+
+    /**
+     * @return True if the computer opponent is about to move. False otherwise.
+     */
+    public boolean isEngineTurn() {
+        return enabled && !model.isGameFinished() && !model.isFirstPlayerTurn();
+    }
+
+    /**
+     * Stop searching and pondering and ignore any move that is still being computed. Called whenever the position
+     * changes other than by a move, like a new game or a take back.
+     */
+    public void reset() {
+        generation++;
+        ponderStop.set(true);
+        searchStop.set(true);
+        ponderPit = PREDICTED_REPLY;
+    }
+
+    /**
+     * Stop searching like reset, and give the engine a full clock for the game that starts.
+     */
+    public void newGame() {
+        reset();
+
+        engineThread.execute(new Runnable() {
+            public void run() {
+                clockMillis = GAME_TIME_MILLIS;
+            }
+        });
+    }
+
+    /**
+     * Called after every move. Either start thinking about the engine's move or ponder the human's likely reply.
+     */
+    public void moveMade() {
+        ponderStop.set(true);
+
+        if (!enabled || model.isGameFinished())
+            return;
+
+        if (isEngineTurn())
+            think();
+        else
+            ponder(PREDICTED_REPLY);
+    }
+
+    /**
+     * Called when the mouse cursor is over one of the human's pits. Ponder that pit instead of the predicted reply.
+     *
+     * @param pit The index of the pit.
+     */
+    public void hover(int pit) {
+        if (enabled && !model.isGameFinished() && model.isFirstPlayerTurn() && pit != ponderPit) {
+            ponderStop.set(true);
+            ponder(pit);
+        }
+    }
+
+    /**
+     * Search the current position and play the best move on the event dispatch thread.
+     */
+    private void think() {
+        final GameState position = model.toGameState();
+        final int moveGeneration = generation;
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        searchStop = stop;
+
+        engineThread.execute(new Runnable() {
+            public void run() {
+                long start = System.nanoTime();
+
+                if (externalCommand != null) {
+                    SearchResult result = searchExternal(position, stop);
+
+                    if (result != null) {
+                        play(result.getBestMove(), moveGeneration, start);
+                        return;
+                    }
+                }
+
+                SearchResult result = null;
+
+                if (ponderedPosition != null && ponderedPosition.hash() == position.hash() &&
+                        ponderedResult != null && ponderedResult.getDepth() > 0)
+                    result = ponderedResult;
+
+                ProofResult proof = solver.solve(position, false, PROOF_NODES, stop);
+                //The proven move is lost when the node table overwrote the entry of its child, so search instead
+                boolean proven = proof.isProven() && proof.getMove() >= 0;
+                //The pondering was done on the human's time, so only the rest of the move's time is searched
+                TimeManager time = new TimeManager(clockMillis - (System.nanoTime() - start) / 1000000,
+                        INCREMENT_MILLIS, position, result == null ? 0 : result.getElapsedMillis());
+
+                if (!proven && (result == null || time.getSoftMillis() > 0)) {
+                    SearchResult searched = engine.search(position, SearchEngine.MAX_DEPTH, time, stop);
+
+                    if (result == null || searched.getDepth() >= result.getDepth())
+                        result = searched;
+                }
+
+                ponderedPosition = null;
+                ponderedResult = null;
+                play(proven ? proof.getMove() : result.getBestMove(), moveGeneration, start);
+            }
+        });
+    }
+
+    /**
+     * Charge the engine's clock for a move and play it on the event dispatch thread, unless the position changed in
+     * the meantime. Called on the engine thread.
+     *
+     * @param move The index of the pit to play, or -1.
+     * @param moveGeneration The generation the move was searched in.
+     * @param start The System.nanoTime() when the engine started thinking.
+     */
+    private void play(final int move, final int moveGeneration, long start) {
+        clockMillis = Math.max(clockMillis - (System.nanoTime() - start) / 1000000, 0) + INCREMENT_MILLIS;
+
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                if (moveGeneration == generation && isEngineTurn() && move >= 0)
+                    model.getView(move).playPit();
+            }
+        });
+    }
+
+    /**
+     * Search a position with the engine in the child process, starting it if needed. Called on the engine thread.
+     *
+     * @param position The position to search.
+     * @param stop A flag that stops the search as soon as it is set.
+     * @return The best move found, or null if the engine could not be started or exited.
+     */
+    private SearchResult searchExternal(GameState position, AtomicBoolean stop) {
+        try {
+            if (external == null)
+                external = new ExternalEngine(externalCommand);
+
+            return external.search(position, 0, 0, 0, clockMillis, INCREMENT_MILLIS, stop);
+        } catch (IOException ex) {
+            System.err.println("External engine failed, searching in process: " + ex.getMessage());
+
+            if (external != null)
+                external.close();
+
+            external = null;
+            return null;
+        }
+    }
+
+    /**
+     * Search the position after a reply of the human until the human moves.
+     *
+     * @param pit The index of the human's pit, or PREDICTED_REPLY to use the reply the engine expects.
+     */
+    private void ponder(final int pit) {
+        if (externalCommand != null)
+            return;
+
+        final GameState position = model.toGameState();
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        ponderStop = stop;
+        ponderPit = pit;
+
+        engineThread.execute(new Runnable() {
+            public void run() {
+                int reply = pit == PREDICTED_REPLY ? engine.getStoredMove(position) : pit;
+
+                if (stop.get() || reply < 0 || !position.isLegalMove(reply))
+                    return;
+
+                position.play(reply);
+                ponderedPosition = position;
+                ponderedResult = null;
+                ponderedResult = engine.search(position, SearchEngine.MAX_DEPTH, 0, stop);
+            }
+        });
+    }
+}
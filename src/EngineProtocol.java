@@ -0,0 +1,134 @@
+/**
+ * The line based protocol spoken between a board or tournament and an engine running in another process, over the
+ * engine's standard input and output. Every message is a single line of space separated tokens, the first token
+ * being the command.
+ *
+ * <pre>
+ * client: hello                              engine: id name, then ready
+ * client: newgame
+ * client: position player finished stones...
+ * client: go [depth d] [nodes n] [movetime ms] [time ms [inc ms]]
+ *                                            engine: info depth d score s nodes n time ms move m  (every iteration)
+ *                                            engine: bestmove m
+ * client: stop
+ * client: quit
+ *                                            engine: error message
+ * </pre>
+ *
+ * A go is always answered by exactly one bestmove, also when it is stopped, and only one go may be outstanding. A stop
+ * is handled as soon as it is read, while the search runs. A client can send hello at any time and wait for ready to
+ * know that everything it sent before has been handled.
+ *
+ * With time, the engine plays on a clock: time is what is left on the mover's clock and inc what is added to it
+ * after the move, and the engine decides itself how much of it to spend with a TimeManager.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class EngineProtocol {
+    public static final String HELLO = "hello";
+    public static final String ID = "id";
+    public static final String READY = "ready";
+    public static final String NEW_GAME = "newgame";
+    public static final String POSITION = "position";
+    public static final String GO = "go";
+    public static final String DEPTH = "depth";
+    public static final String NODES = "nodes";
+    public static final String MOVE_TIME = "movetime";
+    public static final String TIME = "time";
+    public static final String INCREMENT = "inc";
+    public static final String INFO = "info";
+    public static final String BEST_MOVE = "bestmove";
+    public static final String STOP = "stop";
+    public static final String QUIT = "quit";
+    public static final String ERROR = "error";
+
+    /**
+     * Encode a position.
+     *
+     * @param state The position.
+     * @return A position line.
+     */
+    public static String formatPosition(GameState state) {
+        StringBuilder line = new StringBuilder(64);
+        line.append(POSITION);
+        line.append(' ').append(state.isFirstPlayerTurn() ? 1 : 2);
+        line.append(' ').append(state.isFinished() ? 1 : 0);
+
+        for (int i = 0; i < GameState.PIT_COUNT; i++)
+            line.append(' ').append(state.getStones(i));
+
+        return line.toString();
+    }
+
+    /**
+     * Decode a position, in the same layout as a game server STATE line.
+     *
+     * @param tokens The tokens of a position line.
+     * @return The decoded position.
+     */
+    public static GameState parsePosition(String[] tokens) {
+        return GameProtocol.parseState(tokens, 1);
+    }
+
+    /**
+     * Encode the limits of a search.
+     *
+     * @param depth The deepest iteration, or 0 for no limit.
+     * @param nodes The number of positions to visit, or 0 for no limit.
+     * @param moveTimeMillis The time to search for, or 0 for no limit.
+     * @return A go line.
+     */
+    public static String formatGo(int depth, long nodes, long moveTimeMillis) {
+        return formatGo(depth, nodes, moveTimeMillis, 0, 0);
+    }
+
+    /**
+     * Encode the limits of a search on a clock.
+     *
+     * @param depth The deepest iteration, or 0 for no limit.
+     * @param nodes The number of positions to visit, or 0 for no limit.
+     * @param moveTimeMillis The time to search for, or 0 for no limit.
+     * @param clockMillis The time left on the mover's clock, or 0 to play without a clock.
+     * @param incrementMillis The time added to the clock after the move.
+     * @return A go line.
+     */
+    public static String formatGo(int depth, long nodes, long moveTimeMillis, long clockMillis,
+            long incrementMillis) {
+        StringBuilder line = new StringBuilder(48);
+        line.append(GO);
+
+        if (depth > 0)
+            line.append(' ').append(DEPTH).append(' ').append(depth);
+        if (nodes > 0)
+            line.append(' ').append(NODES).append(' ').append(nodes);
+        if (moveTimeMillis > 0)
+            line.append(' ').append(MOVE_TIME).append(' ').append(moveTimeMillis);
+        if (clockMillis > 0)
+            line.append(' ').append(TIME).append(' ').append(clockMillis).append(' ').append(INCREMENT).append(' ')
+                    .append(incrementMillis);
+
+        return line.toString();
+    }
+
+    /**
+     * Encode the progress of a search.
+     *
+     * @param result The result of the last completed iteration.
+     * @return An info line.
+     */
+    public static String formatInfo(SearchResult result) {
+        return INFO + " " + DEPTH + " " + result.getDepth() + " score " + result.getScore() + " " + NODES + " " +
+                result.getNodes() + " time " + result.getElapsedMillis() + " move " + result.getBestMove();
+    }
+
+    /**
+     * Decode the progress of a search.
+     *
+     * @param tokens The tokens of an info line.
+     * @return The result of the iteration.
+     */
+    public static SearchResult parseInfo(String[] tokens) {
+        return new SearchResult(Integer.parseInt(tokens[10]), Integer.parseInt(tokens[4]),
+                Integer.parseInt(tokens[2]), Long.parseLong(tokens[6]), Long.parseLong(tokens[8]));
+    }
+}
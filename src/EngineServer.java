@@ -0,0 +1,220 @@
+import java.io.*;
+import java.nio.charset.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * The engine side of the EngineProtocol: a search engine driven over standard input and output, so a board or a
+ * tournament can run it in a child process. Commands are read on the main thread and searches run on their own
+ * thread, so a stop is handled while the search runs. Output is buffered and flushed once per message.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class EngineServer {
+    public static final String NAME = "mancala";
+
+    private final SearchEngine engine;
+    private final ExecutorService searchThread;
+    private final Writer out;
+    private AtomicBoolean stop;
+
+    /**
+     * Constructor that initializes all private attributes.
+     *
+     * @param out The stream to the client.
+     */
+    public EngineServer(Writer out) {
+        this.out = out;
+        engine = new SearchEngine();
+        engine.setEvaluator(Evaluator.loadDefault());
+        engine.setListener(new SearchListener() {
+            public void iterationDone(SearchResult result) {
+                send(EngineProtocol.formatInfo(result));
+            }
+        });
+        searchThread = Executors.newSingleThreadExecutor();
+        stop = new AtomicBoolean(true);
+    }
+
+    /**
+     * Handle commands until the client quits or closes the input.
+     *
+     * @param in The stream of the client.
+     * @throws IOException If the input cannot be read.
+     */
+    public void run(BufferedReader in) throws IOException {
+        GameState position = new GameState(4);
+        String line;
+
+        try {
+            while ((line = in.readLine()) != null) {
+                String[] tokens = line.trim().split("\\s+");
+
+                try {
+                    if (tokens[0].equals(EngineProtocol.STOP))
+                        stop.set(true);
+                    else if (tokens[0].equals(EngineProtocol.QUIT))
+                        break;
+                    else if (tokens[0].equals(EngineProtocol.HELLO))
+                        sendAfterSearch(EngineProtocol.ID + " " + NAME + "\n" + EngineProtocol.READY);
+                    else if (tokens[0].equals(EngineProtocol.NEW_GAME))
+                        clearAfterSearch();
+                    else if (tokens[0].equals(EngineProtocol.POSITION))
+                        position = EngineProtocol.parsePosition(tokens);
+                    else if (tokens[0].equals(EngineProtocol.GO))
+                        go(position.clone(), tokens);
+                    else if (tokens[0].length() > 0)
+                        send(EngineProtocol.ERROR + " unknown command " + tokens[0]);
+                } catch (RuntimeException ex) {
+                    send(EngineProtocol.ERROR + " bad command: " + line);
+                }
+            }
+        } finally {
+            stop.set(true);
+            searchThread.shutdown();
+        }
+    }
+
+    /**
+     * Start a search with the limits of a go line.
+     *
+     * @param position The position to search.
+     * @param tokens The tokens of the go line.
+     */
+    private void go(final GameState position, String[] tokens) {
+        int depth = SearchEngine.MAX_DEPTH;
+        long nodes = 0;
+        long moveTime = 0;
+        long clock = 0;
+        long increment = 0;
+
+        for (int i = 1; i + 1 < tokens.length; i += 2) {
+            if (tokens[i].equals(EngineProtocol.DEPTH))
+                depth = Integer.parseInt(tokens[i + 1]);
+            else if (tokens[i].equals(EngineProtocol.NODES))
+                nodes = Long.parseLong(tokens[i + 1]);
+            else if (tokens[i].equals(EngineProtocol.MOVE_TIME))
+                moveTime = Long.parseLong(tokens[i + 1]);
+            else if (tokens[i].equals(EngineProtocol.TIME))
+                clock = Long.parseLong(tokens[i + 1]);
+            else if (tokens[i].equals(EngineProtocol.INCREMENT))
+                increment = Long.parseLong(tokens[i + 1]);
+        }
+
+        final int maxDepth = depth;
+        final long maxNodes = nodes;
+        final long moveTimeMillis = moveTime;
+        final TimeManager time = clock > 0 ? new TimeManager(clock, increment, position) : null;
+        final AtomicBoolean searchStop = new AtomicBoolean(false);
+        stop = searchStop;
+
+        searchThread.execute(new Runnable() {
+            public void run() {
+                SearchResult result = time == null ?
+                        engine.search(position, maxDepth, moveTimeMillis, maxNodes, searchStop) :
+                        engine.search(position, maxDepth, time, searchStop);
+                send(EngineProtocol.BEST_MOVE + " " + result.getBestMove());
+            }
+        });
+    }
+
+    /**
+     * Answer once the searches started before are done.
+     *
+     * @param message The message.
+     */
+    private void sendAfterSearch(final String message) {
+        searchThread.execute(new Runnable() {
+            public void run() {
+                send(message);
+            }
+        });
+    }
+
+    /**
+     * Forget every searched position once the searches started before are done.
+     */
+    private void clearAfterSearch() {
+        searchThread.execute(new Runnable() {
+            public void run() {
+                engine.clear();
+            }
+        });
+    }
+
+    /**
+     * Write a message and flush it.
+     *
+     * @param message The message, which may span several lines.
+     */
+    private synchronized void send(String message) {
+        try {
+            out.write(message);
+            out.write('\n');
+            out.flush();
+        } catch (IOException ex) {
+            stop.set(true); //The client is gone
+        }
+    }
+
+    /**
+     * Play a game with the engine over in-memory pipes, so the classes of the protocol and the search are loaded the
+     * way a child process loads them, like when recording the class data sharing archive.
+     *
+     * @param depth The depth of every search.
+     * @param positions The number of positions to search.
+     * @throws IOException If the engine stops answering.
+     */
+    public static void warmup(int depth, int positions) throws IOException {
+        PipedWriter commands = new PipedWriter();
+        final BufferedReader in = new BufferedReader(new PipedReader(commands));
+        PipedReader answers = new PipedReader();
+        final EngineServer server = new EngineServer(new BufferedWriter(new PipedWriter(answers)));
+        BufferedReader replies = new BufferedReader(answers);
+
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    server.run(in);
+                } catch (IOException ex) {}
+            }
+        }, "engine-warmup");
+        thread.start();
+
+        GameState state = new GameState(4);
+
+        for (int i = 0; i < positions && !state.isFinished(); i++) {
+            commands.write(EngineProtocol.formatPosition(state) + "\n" + EngineProtocol.formatGo(depth, 0, 0) + "\n");
+            commands.flush();
+            String line;
+
+            while ((line = replies.readLine()) != null && !line.startsWith(EngineProtocol.BEST_MOVE + " ")) {}
+
+            if (line == null)
+                throw new IOException("Engine stopped answering");
+
+            state.play(Integer.parseInt(line.split(" ")[1]));
+        }
+
+        commands.write(EngineProtocol.QUIT + "\n");
+        commands.close();
+
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Run the engine on standard input and output.
+     *
+     * @param args Unused.
+     * @throws IOException If the input cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII));
+        new EngineServer(out).run(in);
+    }
+}
@@ -0,0 +1,284 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Fits the weights of WeightedEvaluator to game outcomes (Texel tuning). The score of every position is squashed to
+ * an expected result with a sigmoid and the squared error against the actual result is minimized by mini-batch
+ * gradient descent. Every mini-batch is split across all cores. The weights are checkpointed after every epoch, and
+ * an existing checkpoint is resumed from. The dataset to train on can also be a directory of chunk files written by
+ * ColumnarWriter.
+ *
+ * <pre>
+ * generate dataset games [depth] [randomMoves]
+ * train dataset|exportDirectory weights [epochs] [batchSize] [learningRate]
+ * </pre>
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class EvalTuner {
+    private final PositionDataset dataset;
+    private final ExecutorService pool;
+    private final int threads;
+    private final double[] weights;
+    private double scale;
+
+    /**
+     * Constructor that initializes all private attributes.
+     *
+     * @param dataset The positions to fit the weights to.
+     * @param weights The starting weights, in hundredths of a stone per unit.
+     */
+    public EvalTuner(PositionDataset dataset, int[] weights) {
+        this.dataset = dataset;
+        threads = Runtime.getRuntime().availableProcessors();
+        pool = Executors.newFixedThreadPool(threads);
+        this.weights = new double[weights.length];
+        scale = 1.0 / Evaluator.STONE;
+
+        for (int i = 0; i < weights.length; i++)
+            this.weights[i] = weights[i];
+    }
+
+    /**
+     * Pick the sigmoid scale that fits the starting weights best, so the weights keep their unit.
+     *
+     * @throws InterruptedException If the search is interrupted.
+     */
+    public void fitScale() throws InterruptedException {
+        double low = 0.01 / Evaluator.STONE;
+        double high = 10.0 / Evaluator.STONE;
+
+        for (int i = 0; i < 40; i++) {
+            double third = (high - low) / 3;
+            scale = low + third;
+            double lowLoss = gradient(0, dataset.size(), null)[weights.length];
+            scale = high - third;
+            double highLoss = gradient(0, dataset.size(), null)[weights.length];
+
+            if (lowLoss < highLoss)
+                high -= third;
+            else
+                low += third;
+        }
+
+        scale = (low + high) / 2;
+    }
+
+    /**
+     * Run one epoch over the dataset in shuffled mini-batches, using Adam to update the weights.
+     *
+     * @param batchSize The number of positions per mini-batch.
+     * @param learningRate The step size, in hundredths of a stone.
+     * @param rand The source of the shuffle.
+     * @param moments The first and second moments of Adam, kept between epochs.
+     * @param step The number of updates made so far, kept between epochs.
+     * @return The mean loss over the epoch.
+     * @throws InterruptedException If the epoch is interrupted.
+     */
+    public double epoch(int batchSize, double learningRate, Random rand, double[][] moments, long[] step)
+            throws InterruptedException {
+        int[] order = new int[dataset.size()];
+
+        for (int i = 0; i < order.length; i++)
+            order[i] = i;
+
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            int temp = order[i];
+            order[i] = order[j];
+            order[j] = temp;
+        }
+
+        double loss = 0;
+
+        for (int start = 0; start < order.length; start += batchSize) {
+            int end = Math.min(start + batchSize, order.length);
+            double[] result = gradient(start, end, order);
+            loss += result[weights.length] * (end - start);
+            step[0]++;
+
+            for (int i = 0; i < weights.length; i++) {
+                double g = result[i];
+                moments[0][i] = 0.9 * moments[0][i] + 0.1 * g;
+                moments[1][i] = 0.999 * moments[1][i] + 0.001 * g * g;
+                double m = moments[0][i] / (1 - Math.pow(0.9, step[0]));
+                double v = moments[1][i] / (1 - Math.pow(0.999, step[0]));
+                weights[i] -= learningRate * m / (Math.sqrt(v) + 1e-8);
+            }
+        }
+
+        return loss / order.length;
+    }
+
+    /**
+     * Compute the mean gradient and loss of a range of positions, split across all cores.
+     *
+     * @param start The first index of the range.
+     * @param end The index after the range.
+     * @param order The positions to use in place of the indexes, or null to use the indexes directly.
+     * @return The mean gradient of every weight, followed by the mean loss.
+     * @throws InterruptedException If the computation is interrupted.
+     */
+    private double[] gradient(int start, int end, final int[] order) throws InterruptedException {
+        ArrayList<Callable<double[]>> slices = new ArrayList<Callable<double[]>>();
+        int sliceSize = (end - start + threads - 1) / threads;
+
+        for (int from = start; from < end; from += sliceSize) {
+            final int sliceStart = from;
+            final int sliceEnd = Math.min(from + sliceSize, end);
+
+            slices.add(new Callable<double[]>() {
+                public double[] call() {
+                    return partialGradient(sliceStart, sliceEnd, order);
+                }
+            });
+        }
+
+        double[] total = new double[weights.length + 1];
+
+        try {
+            for (Future<double[]> slice : pool.invokeAll(slices)) {
+                double[] partial = slice.get();
+
+                for (int i = 0; i < total.length; i++)
+                    total[i] += partial[i];
+            }
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+
+        for (int i = 0; i < total.length; i++)
+            total[i] /= end - start;
+
+        return total;
+    }
+
+    /**
+     * @param start The first index of the range.
+     * @param end The index after the range.
+     * @param order The positions to use in place of the indexes, or null to use the indexes directly.
+     * @return The summed gradient of every weight, followed by the summed loss.
+     */
+    private double[] partialGradient(int start, int end, int[] order) {
+        byte[] pits = dataset.getPits();
+        int[] values = new int[weights.length];
+        double[] sum = new double[weights.length + 1];
+
+        for (int n = start; n < end; n++) {
+            int index = order == null ? n : order[n];
+            WeightedEvaluator.extract(pits, index * GameState.PIT_COUNT, dataset.isFirstPlayerTurn(index), values);
+            double score = 0;
+
+            for (int i = 0; i < weights.length; i++)
+                score += weights[i] * values[i];
+
+            double expected = 1 / (1 + Math.exp(-scale * score));
+            double error = expected - dataset.getResult(index) / 2.0;
+            double factor = 2 * error * expected * (1 - expected) * scale;
+
+            for (int i = 0; i < weights.length; i++)
+                sum[i] += factor * values[i];
+
+            sum[weights.length] += error * error;
+        }
+
+        return sum;
+    }
+
+    /**
+     * @return The current weights, rounded to hundredths of a stone per unit.
+     */
+    public int[] getWeights() {
+        int[] rounded = new int[weights.length];
+
+        for (int i = 0; i < weights.length; i++)
+            rounded[i] = (int) Math.round(weights[i]);
+
+        return rounded;
+    }
+
+    /**
+     * Write the current weights so that WeightedEvaluator can load them. The file is replaced atomically, so a crash
+     * never leaves a half written checkpoint.
+     *
+     * @param file The weights file.
+     * @param comment A line describing the checkpoint.
+     * @throws IOException If the file cannot be written.
+     */
+    public void checkpoint(File file, String comment) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        PrintWriter out = new PrintWriter(new FileWriter(temp));
+        int[] rounded = getWeights();
+
+        try {
+            out.println("# " + comment);
+
+            for (int i = 0; i < rounded.length; i++)
+                out.println(WeightedEvaluator.FEATURES[i] + " " + rounded[i]);
+        } finally {
+            out.close();
+        }
+
+        if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file)))
+            throw new IOException("Could not replace " + file);
+    }
+
+    /**
+     * Shut down the worker threads.
+     */
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Generate a dataset or train weights on one.
+     *
+     * @param args The command and its arguments.
+     * @throws Exception If the files cannot be read or written.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && args[0].equals("generate")) {
+            int depth = args.length > 3 ? Integer.parseInt(args[3]) : 6;
+            int randomMoves = args.length > 4 ? Integer.parseInt(args[4]) : 6;
+            long start = System.nanoTime();
+            PositionDataset dataset = PositionDataset.generate(Integer.parseInt(args[2]), depth, randomMoves,
+                    System.nanoTime());
+            dataset.save(new File(args[1]));
+            System.out.printf("%d positions in %.1fs%n", dataset.size(), (System.nanoTime() - start) / 1e9);
+        }
+        else if (args.length >= 3 && args[0].equals("train")) {
+            File weightsFile = new File(args[2]);
+            int epochs = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+            int batchSize = args.length > 4 ? Integer.parseInt(args[4]) : 16384;
+            double learningRate = args.length > 5 ? Double.parseDouble(args[5]) : 1;
+            File datasetFile = new File(args[1]);
+            PositionDataset dataset = datasetFile.isDirectory() ? ColumnarReader.readDataset(datasetFile) :
+                    PositionDataset.load(datasetFile);
+            WeightedEvaluator start = weightsFile.isFile() ? WeightedEvaluator.load(weightsFile) :
+                    new WeightedEvaluator();
+            EvalTuner tuner = new EvalTuner(dataset, start.getWeights());
+            double[][] moments = new double[2][WeightedEvaluator.FEATURES.length];
+            long[] step = {0};
+            Random rand = new Random();
+
+            try {
+                tuner.fitScale();
+
+                for (int epoch = 1; epoch <= epochs; epoch++) {
+                    long begin = System.nanoTime();
+                    double loss = tuner.epoch(batchSize, learningRate, rand, moments, step);
+                    String status = String.format("epoch %d loss %.6f %d positions in %.1fs %s", epoch, loss,
+                            dataset.size(), (System.nanoTime() - begin) / 1e9, Arrays.toString(tuner.getWeights()));
+                    tuner.checkpoint(weightsFile, status);
+                    System.out.println(status);
+                }
+            } finally {
+                tuner.close();
+            }
+        }
+        else
+            System.err.println("Usage: generate dataset games [depth] [randomMoves] | " +
+                    "train dataset|exportDirectory weights [epochs] [batchSize] [learningRate]");
+    }
+}
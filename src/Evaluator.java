@@ -0,0 +1,72 @@
+import java.io.*;
+
+/**
+ * This will be the strategy that the search engine uses to score the positions it does not search any deeper.
+ *
+ * The engine tells the strategy about every move it makes while walking the tree, so a strategy may keep its own
+ * state per ply and update it incrementally instead of scoring every position from scratch. Such a strategy must only
+ * be used by one engine.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public abstract class Evaluator {
+    public static final int STONE = 100;
+
+    /**
+     * Load the evaluation the engine plays with: the network weights in mancala.nnue (or the file named by the
+     * mancala.network property) when there are any, otherwise the tuned weights in mancala.weights (or the
+     * mancala.weights property), otherwise the store difference.
+     *
+     * @return The evaluation.
+     */
+    public static Evaluator loadDefault() {
+        File network = new File(System.getProperty("mancala.network", NetworkEvaluator.DEFAULT_FILE));
+        File weights = new File(System.getProperty("mancala.weights", WeightedEvaluator.DEFAULT_FILE));
+
+        try {
+            if (network.isFile())
+                return NetworkEvaluator.load(network);
+            else if (weights.isFile())
+                return WeightedEvaluator.load(weights);
+        } catch (IOException ex) {
+            System.err.println("Could not load the evaluation, using the store difference: " + ex.getMessage());
+        }
+
+        return new StoreDifferenceEvaluator();
+    }
+
+    /**
+     * Implementation to score a position that is not finished, from scratch.
+     *
+     * @param state The position to score.
+     * @return The score from the point of view of the player to move, in hundredths of a stone.
+     */
+    public abstract int evaluate(GameState state);
+
+    /**
+     * Score a position of the tree. The default scores it from scratch.
+     *
+     * @param ply The distance of the position from the root.
+     * @param state The position to score.
+     * @return The score from the point of view of the player to move, in hundredths of a stone.
+     */
+    public int evaluate(int ply, GameState state) {
+        return evaluate(state);
+    }
+
+    /**
+     * Called before the engine walks a tree.
+     *
+     * @param root The position at ply 0.
+     */
+    public void setRoot(GameState root) {}
+
+    /**
+     * Called after the engine made a move.
+     *
+     * @param ply The distance of the parent from the root.
+     * @param parent The position before the move.
+     * @param child The position after the move, at ply + 1.
+     */
+    public void play(int ply, GameState parent, GameState child) {}
+}
@@ -0,0 +1,222 @@
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * The client side of the EngineProtocol: an engine running in a child process. A crash or a long garbage collection
+ * of the engine stays in its own process; the client only sees the engine exit, as an IOException. The lines of the
+ * engine are read on their own thread, so a search can be stopped while the client waits for its best move.
+ *
+ * One client must only be used by one thread at a time.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class ExternalEngine {
+    private static final String EXITED = "";
+
+    private final Process process;
+    private final Writer out;
+    private final LinkedBlockingQueue<String> lines;
+    private final String name;
+
+    /**
+     * Constructor that starts the engine and waits until it is ready.
+     *
+     * @param command The command line that starts the engine.
+     * @throws IOException If the engine cannot be started or does not answer.
+     */
+    public ExternalEngine(java.util.List<String> command) throws IOException {
+        process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        out = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.US_ASCII));
+        lines = new LinkedBlockingQueue<String>();
+        final BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.US_ASCII));
+
+        Thread reader = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    String line;
+
+                    while ((line = in.readLine()) != null)
+                        if (line.length() > 0)
+                            lines.add(line);
+                } catch (IOException ex) {
+                } finally {
+                    lines.add(EXITED);
+                }
+            }
+        }, "engine-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        send(EngineProtocol.HELLO);
+        String engineName = "unknown";
+        String line;
+
+        while (!(line = take()).equals(EngineProtocol.READY))
+            if (line.startsWith(EngineProtocol.ID + " "))
+                engineName = line.substring(EngineProtocol.ID.length() + 1);
+
+        name = engineName;
+    }
+
+    /**
+     * @return The command line that runs this program's own engine with the class path and class data sharing archive
+     *         of this JVM.
+     */
+    public static java.util.List<String> getDefaultCommand() {
+        return Main.getChildCommand(Collections.<String>emptyList(), "EngineServer");
+    }
+
+    /**
+     * @return The name the engine gave itself.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Tell the engine that the next position belongs to another game, so it can forget what it searched.
+     *
+     * @throws IOException If the engine has exited.
+     */
+    public void newGame() throws IOException {
+        send(EngineProtocol.NEW_GAME);
+    }
+
+    /**
+     * Search a position until the depth is reached, the time is up, the node budget is spent or the search is
+     * stopped.
+     *
+     * @param state The position to search.
+     * @param depth The deepest iteration, or 0 for no limit.
+     * @param nodes The number of positions to visit, or 0 for no limit.
+     * @param moveTimeMillis The time to search for, or 0 for no limit.
+     * @param stop A flag that stops the search as soon as it is set, or null.
+     * @return The best move with the score, depth and nodes of the last iteration the engine reported.
+     * @throws IOException If the engine has exited or sent something else.
+     */
+    public SearchResult search(GameState state, int depth, long nodes, long moveTimeMillis, AtomicBoolean stop)
+            throws IOException {
+        return search(state, depth, nodes, moveTimeMillis, 0, 0, stop);
+    }
+
+    /**
+     * Search a position like search without a clock, or let the engine decide how long to search from its clock.
+     *
+     * @param state The position to search.
+     * @param depth The deepest iteration, or 0 for no limit.
+     * @param nodes The number of positions to visit, or 0 for no limit.
+     * @param moveTimeMillis The time to search for, or 0 for no limit.
+     * @param clockMillis The time left on the engine's clock, or 0 to play without a clock.
+     * @param incrementMillis The time added to the clock after the move.
+     * @param stop A flag that stops the search as soon as it is set, or null.
+     * @return The best move with the score, depth and nodes of the last iteration the engine reported.
+     * @throws IOException If the engine has exited or sent something else.
+     */
+    public SearchResult search(GameState state, int depth, long nodes, long moveTimeMillis, long clockMillis,
+            long incrementMillis, AtomicBoolean stop) throws IOException {
+        long start = System.nanoTime();
+        send(EngineProtocol.formatPosition(state) + "\n" + EngineProtocol.formatGo(depth, nodes, moveTimeMillis,
+                clockMillis, incrementMillis));
+        SearchResult info = new SearchResult(-1, 0, 0, 0, 0);
+        boolean stopSent = false;
+        boolean interrupted = false;
+
+        while (true) {
+            String line;
+
+            try {
+                line = lines.poll(10, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                interrupted = true; //Stop, but still wait for the best move so it is not left for the next search
+                line = null;
+            }
+
+            if (line == null) {
+                if ((interrupted || stop != null && stop.get()) && !stopSent) {
+                    send(EngineProtocol.STOP);
+                    stopSent = true;
+                }
+
+                continue;
+            }
+
+            String[] tokens = line.split(" ");
+
+            if (line == EXITED) {
+                lines.add(EXITED); //Every later call fails as well
+                throw new IOException("Engine " + name + " exited");
+            }
+            else if (tokens[0].equals(EngineProtocol.INFO))
+                info = EngineProtocol.parseInfo(tokens);
+            else if (tokens[0].equals(EngineProtocol.BEST_MOVE)) {
+                if (interrupted)
+                    Thread.currentThread().interrupt();
+
+                return new SearchResult(Integer.parseInt(tokens[1]), info.getScore(), info.getDepth(),
+                        info.getNodes(), (System.nanoTime() - start) / 1000000);
+            }
+            else if (tokens[0].equals(EngineProtocol.ERROR))
+                throw new IOException("Engine " + name + ": " + line);
+        }
+    }
+
+    /**
+     * Ask the engine to quit, and kill it if it does not.
+     */
+    public void close() {
+        try {
+            send(EngineProtocol.QUIT);
+        } catch (IOException ex) {}
+
+        for (int i = 0; i < 100; i++) {
+            try {
+                process.exitValue();
+                return;
+            } catch (IllegalThreadStateException ex) {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        }
+
+        process.destroy();
+    }
+
+    /**
+     * Write a message and flush it.
+     *
+     * @param message The message, which may span several lines.
+     * @throws IOException If the engine has exited.
+     */
+    private void send(String message) throws IOException {
+        out.write(message);
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * @return The next line of the engine.
+     * @throws IOException If the engine has exited.
+     */
+    private String take() throws IOException {
+        try {
+            String line = lines.take();
+
+            if (line == EXITED) {
+                lines.add(EXITED);
+                throw new IOException("Engine exited");
+            }
+
+            return line;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+}
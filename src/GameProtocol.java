@@ -0,0 +1,88 @@
+/**
+ * The line based protocol spoken between the game server and its clients. Every message is a single line of space
+ * separated tokens, the first token being the command.
+ *
+ * <pre>
+ * client: NEW stonesPerPit        server: GAME id
+ * client: JOIN id                 server: STATE id seq player finished stones...
+ * client: SYNC id                 server: STATE id seq player finished stones...
+ * client: MOVE id pit             server: MOVED id seq pit  (to every joined client)
+ * client: LEAVE id
+ * client: QUIT
+ *                                 server: ERROR message
+ * </pre>
+ *
+ * After joining, a client only receives the moves that were played. Every move carries the sequence number of the
+ * position it produced, so a client that rebuilds the board with GameState notices a missed move and asks for a full
+ * snapshot with SYNC.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class GameProtocol {
+    public static final String NEW = "NEW";
+    public static final String GAME = "GAME";
+    public static final String JOIN = "JOIN";
+    public static final String SYNC = "SYNC";
+    public static final String MOVE = "MOVE";
+    public static final String LEAVE = "LEAVE";
+    public static final String QUIT = "QUIT";
+    public static final String STATE = "STATE";
+    public static final String MOVED = "MOVED";
+    public static final String ERROR = "ERROR";
+
+    /**
+     * Encode the full state of a game.
+     *
+     * @param id The id of the game.
+     * @param seq The number of moves that led to the state.
+     * @param state The state of the game.
+     * @return A STATE line.
+     */
+    public static String formatState(int id, int seq, GameState state) {
+        StringBuilder line = new StringBuilder(64);
+        line.append(STATE).append(' ').append(id).append(' ').append(seq);
+        line.append(' ').append(state.isFirstPlayerTurn() ? 1 : 2);
+        line.append(' ').append(state.isFinished() ? 1 : 0);
+
+        for (int i = 0; i < GameState.PIT_COUNT; i++)
+            line.append(' ').append(state.getStones(i));
+
+        return line.toString();
+    }
+
+    /**
+     * Decode the state of a game.
+     *
+     * @param tokens The tokens of a STATE line.
+     * @param offset The index of the player token.
+     * @return The decoded state.
+     */
+    public static GameState parseState(String[] tokens, int offset) {
+        byte[] pits = new byte[GameState.PIT_COUNT];
+
+        for (int i = 0; i < GameState.PIT_COUNT; i++)
+            pits[i] = Byte.parseByte(tokens[offset + 2 + i]);
+
+        return new GameState(pits, tokens[offset].equals("1"), tokens[offset + 1].equals("1"));
+    }
+
+    /**
+     * Encode a single move.
+     *
+     * @param id The id of the game.
+     * @param seq The number of moves played including this one.
+     * @param pit The index of the pit that was played.
+     * @return A MOVED line.
+     */
+    public static String formatMove(int id, int seq, int pit) {
+        return MOVED + " " + id + " " + seq + " " + pit;
+    }
+
+    /**
+     * @param message The reason of the error.
+     * @return An ERROR line.
+     */
+    public static String formatError(String message) {
+        return ERROR + " " + message;
+    }
+}
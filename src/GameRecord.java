@@ -0,0 +1,150 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * The moves of a game, enough to replay every position of it. Records are saved as text: a line with the number of
+ * starting stones per pit and a line with every pit that was played, in order.
+ *
+ * <pre>
+ * stones 4
+ * moves 2 9 5 12 ...
+ * </pre>
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class GameRecord {
+    private final int stonesPerPit;
+    private byte[] moves;
+    private int moveCount;
+
+    /**
+     * Constructor that starts an empty record.
+     *
+     * @param stonesPerPit The number of starting stones in every pit.
+     */
+    public GameRecord(int stonesPerPit) {
+        this.stonesPerPit = stonesPerPit;
+        moves = new byte[64];
+        moveCount = 0;
+    }
+
+    /**
+     * @param pit The pit that was played.
+     */
+    public void addMove(int pit) {
+        if (moveCount == moves.length)
+            moves = Arrays.copyOf(moves, moves.length * 2);
+
+        moves[moveCount++] = (byte) pit;
+    }
+
+    /**
+     * Forget the moves after a given ply, like when play continues from an earlier position.
+     *
+     * @param plies The number of moves to keep.
+     */
+    public void truncate(int plies) {
+        moveCount = Math.min(moveCount, Math.max(plies, 0));
+    }
+
+    /**
+     * @return The number of starting stones in every pit.
+     */
+    public int getStonesPerPit() {
+        return stonesPerPit;
+    }
+
+    /**
+     * @return The number of moves played.
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * @param index The index of the move.
+     * @return The pit that was played.
+     */
+    public int getMove(int index) {
+        return moves[index];
+    }
+
+    /**
+     * @return A copy of this record that does not change with it.
+     */
+    public GameRecord copy() {
+        GameRecord copy = new GameRecord(stonesPerPit);
+        copy.moves = Arrays.copyOf(moves, Math.max(moveCount, 1));
+        copy.moveCount = moveCount;
+        return copy;
+    }
+
+    /**
+     * Read a record from a file and check that every move is legal. Records saved before decided games ended early
+     * (see GameState.isDecided) go on after the game is decided; those trailing moves are ignored.
+     *
+     * @param file The record file.
+     * @return The record.
+     * @throws IOException If the file cannot be read or is not a legal game.
+     */
+    public static GameRecord load(File file) throws IOException {
+        Scanner in = new Scanner(file, "UTF-8");
+
+        try {
+            if (!in.hasNext("stones"))
+                throw new IOException(file + " is not a game record");
+
+            in.next();
+            GameRecord record = new GameRecord(in.nextInt());
+            GameState state = new GameState(record.stonesPerPit);
+
+            if (in.hasNext("moves")) {
+                in.next();
+
+                while (in.hasNextInt()) {
+                    int pit = in.nextInt();
+
+                    if (state.isFinished())
+                        continue;
+
+                    if (!state.isLegalMove(pit))
+                        throw new IOException("Illegal move " + pit + " after " + record.moveCount + " moves in " + file);
+
+                    state.play(pit);
+                    record.addMove(pit);
+                }
+            }
+
+            return record;
+        } catch (NoSuchElementException ex) {
+            throw new IOException(file + " is not a game record");
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Write the record to a file.
+     *
+     * @param file The record file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(File file) throws IOException {
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+
+        try {
+            out.println("stones " + stonesPerPit);
+            out.print("moves");
+
+            for (int i = 0; i < moveCount; i++)
+                out.print(" " + moves[i]);
+
+            out.println();
+        } finally {
+            out.close();
+        }
+
+        if (out.checkError())
+            throw new IOException("Could not write " + file);
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A headless server that hosts many games in one process. Clients connect over a local socket and speak the
+ * GameProtocol. The moves of every game run on a small shared pool through the game's own serial executor, and the
+ * updates to the clients are written in batches by a separate pool of at most WRITER_THREADS threads, so slow clients
+ * cannot make the server start a thread each. A client that stops reading is dropped when a write to it misses its
+ * deadline, so it cannot hold on to a writer thread either.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class GameServer {
+    public static final int DEFAULT_PORT = 4444;
+    public static final int WRITER_THREADS = 16;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connectionPool;
+    private final ExecutorService gamePool;
+    private final ExecutorService writerPool;
+    private final ScheduledThreadPoolExecutor writeDeadlines;
+    private final ConcurrentHashMap<Integer, GameSession> games;
+    private final AtomicInteger nextGameId;
+    private final MoveJournal journal;
+
+    /**
+     * Constructor that binds the server to the loopback address. The games are only kept in memory.
+     *
+     * @param port The port to listen on. 0 picks any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public GameServer(int port) throws IOException {
+        this(port, null);
+    }
+
+    /**
+     * Constructor that binds the server to the loopback address and resumes every unfinished game of the journal.
+     *
+     * @param port The port to listen on. 0 picks any free port.
+     * @param journal The journal every game is recorded to, or null to only keep the games in memory.
+     * @throws IOException If the port cannot be bound or the journal cannot be recovered.
+     */
+    public GameServer(int port, MoveJournal journal) throws IOException {
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        connectionPool = Executors.newCachedThreadPool();
+        gamePool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        writerPool = Executors.newFixedThreadPool(WRITER_THREADS);
+        writeDeadlines = new ScheduledThreadPoolExecutor(1);
+        writeDeadlines.setRemoveOnCancelPolicy(true); //Almost every deadline is cancelled once its batch is written
+        games = new ConcurrentHashMap<Integer, GameSession>();
+        nextGameId = new AtomicInteger(1);
+        this.journal = journal;
+
+        if (journal != null) {
+            LinkedHashMap<Integer, MoveJournal.Game> recovered = journal.recover();
+            nextGameId.set(journal.getHighestId() + 1); //Finished games keep their ids too
+
+            for (Map.Entry<Integer, MoveJournal.Game> entry : recovered.entrySet()) {
+                int id = entry.getKey();
+                MoveJournal.Game game = entry.getValue();
+                GameState state = game.replay();
+
+                if (state.isFinished())
+                    journal.end(id); //Decided under the current rules, so it is over like any finished game
+                else
+                    games.put(id, new GameSession(id, this, state, game.getMoveCount(), gamePool));
+            }
+        }
+    }
+
+    /**
+     * Accept connections until the server is closed.
+     */
+    public void run() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connectionPool.execute(new ServerConnection(this, socket, writerPool, writeDeadlines));
+            } catch (IOException ex) {
+                if (!serverSocket.isClosed())
+                    System.err.println("Could not accept connection: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Stop accepting connections and shut down every pool.
+     */
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException ex) {}
+
+        connectionPool.shutdownNow();
+        gamePool.shutdown();
+        writerPool.shutdownNow();
+        writeDeadlines.shutdownNow();
+
+        if (journal != null) {
+            try {
+                gamePool.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {}
+
+            journal.close();
+        }
+    }
+
+    /**
+     * Create a new game.
+     *
+     * @param stonesPerPit The number of starting stones in every pit.
+     * @return The new game.
+     */
+    public GameSession createGame(int stonesPerPit) {
+        int id = nextGameId.getAndIncrement();
+        GameSession game = new GameSession(id, this, stonesPerPit, gamePool);
+        games.put(id, game);
+
+        if (journal != null)
+            journal.create(id, stonesPerPit);
+
+        return game;
+    }
+
+    /**
+     * Record a move in the journal.
+     *
+     * @param id The id of the game.
+     * @param pit The pit that was played.
+     */
+    public void recordMove(int id, int pit) {
+        if (journal != null)
+            journal.move(id, pit);
+    }
+
+    /**
+     * @param id The id of the game.
+     * @return The game, or null if there is no such game.
+     */
+    public GameSession getGame(int id) {
+        return games.get(id);
+    }
+
+    /**
+     * Forget a game. It will not be resumed from the journal anymore.
+     *
+     * @param id The id of the game.
+     */
+    public void removeGame(int id) {
+        games.remove(id);
+
+        if (journal != null)
+            journal.end(id);
+    }
+
+    /**
+     * @return The number of games currently hosted.
+     */
+    public int getGameCount() {
+        return games.size();
+    }
+
+    /**
+     * @return The port the server is listening on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Start a server on the given port, or on the default port. When a journal directory is given, every game is
+     * recorded there and the unfinished games are resumed on the next start.
+     *
+     * @param args The optional port and journal directory.
+     * @throws IOException If the port cannot be bound or the journal cannot be recovered.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        MoveJournal journal = args.length > 1 ? new MoveJournal(new File(args[1])) : null;
+        GameServer server = new GameServer(port, journal);
+        System.out.println("Mancala server listening on port " + server.getPort() + " with " + server.getGameCount() +
+                " resumed games");
+        server.run();
+    }
+}
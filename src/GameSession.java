@@ -0,0 +1,126 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A single game hosted by the game server. Every change to the game runs on its own serial executor, so the state and
+ * the attached connections are never touched by two threads at once. Any number of connections may watch a game;
+ * updates are only queued on their writers, so a slow spectator never holds up a move.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class GameSession {
+    private final int id;
+    private final GameServer server;
+    private final GameState state;
+    private final SerialExecutor executor;
+    private final LinkedHashSet<ServerConnection> connections;
+    private int seq;
+
+    /**
+     * Constructor that initializes all private attributes.
+     *
+     * @param id The id of the game.
+     * @param server The server hosting this game.
+     * @param stonesPerPit The number of starting stones in every pit.
+     * @param executor The shared executor that will run the moves of this game.
+     */
+    public GameSession(int id, GameServer server, int stonesPerPit, Executor executor) {
+        this(id, server, new GameState(stonesPerPit), 0, executor);
+    }
+
+    /**
+     * Constructor that resumes a game that was already in progress.
+     *
+     * @param id The id of the game.
+     * @param server The server hosting this game.
+     * @param state The current state of the game.
+     * @param seq The number of moves that led to the state.
+     * @param executor The shared executor that will run the moves of this game.
+     */
+    public GameSession(int id, GameServer server, GameState state, int seq, Executor executor) {
+        this.id = id;
+        this.server = server;
+        this.state = state;
+        this.executor = new SerialExecutor(executor);
+        connections = new LinkedHashSet<ServerConnection>();
+        this.seq = seq;
+    }
+
+    /**
+     * Attach a connection to this game and send it the current state.
+     *
+     * @param connection The connection to be notified of changes.
+     */
+    public void attach(final ServerConnection connection) {
+        executor.execute(new Runnable() {
+            public void run() {
+                connections.add(connection);
+                connection.send(GameProtocol.formatState(id, seq, state));
+            }
+        });
+    }
+
+    /**
+     * Send the current state to a connection that fell out of sync.
+     *
+     * @param connection The connection to resend the state to.
+     */
+    public void sync(final ServerConnection connection) {
+        executor.execute(new Runnable() {
+            public void run() {
+                connection.send(GameProtocol.formatState(id, seq, state));
+            }
+        });
+    }
+
+    /**
+     * Detach a connection from this game.
+     *
+     * @param connection The connection to be detached.
+     */
+    public void detach(final ServerConnection connection) {
+        executor.execute(new Runnable() {
+            public void run() {
+                connections.remove(connection);
+            }
+        });
+    }
+
+    /**
+     * Play a pit for the current player and send the move to every attached connection. A finished game is removed
+     * from the server.
+     *
+     * @param connection The connection that requested the move.
+     * @param pit The index of the pit to be played.
+     */
+    public void move(final ServerConnection connection, final int pit) {
+        executor.execute(new Runnable() {
+            public void run() {
+                if (!state.isLegalMove(pit)) {
+                    connection.send(GameProtocol.formatError("illegal move " + id + " " + pit));
+                    return;
+                }
+
+                state.play(pit);
+                server.recordMove(id, pit);
+                String line = GameProtocol.formatMove(id, ++seq, pit);
+
+                for (ServerConnection listener : connections)
+                    listener.send(line);
+
+                if (!connections.contains(connection))
+                    connection.send(line);
+
+                if (state.isFinished())
+                    server.removeGame(id);
+            }
+        });
+    }
+
+    /**
+     * @return The id of the game.
+     */
+    public int getId() {
+        return id;
+    }
+}
@@ -0,0 +1,305 @@
+import java.util.*;
+
+/**
+ * A compact, Swing independent copy of the board that knows the rules of the game. Only the stone counts of every
+ * container are kept so that many games can be held in memory at once.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class GameState implements Cloneable {
+    public static final int PITS_PER_PLAYER = 6;
+    public static final int PIT_COUNT = (PITS_PER_PLAYER + 1) * 2;
+    public static final int PLAYER_ONE_MANCALA_INDEX = PITS_PER_PLAYER;
+    public static final int PLAYER_TWO_MANCALA_INDEX = PIT_COUNT - 1;
+    public static final int MIN_STONES_PER_PIT = 1;
+    public static final int MAX_STONES_PER_PIT = 10; //Every stone in one mancala must still fit in a byte
+
+    private static final long[][] STONE_KEYS = new long[PIT_COUNT][Byte.MAX_VALUE + 1];
+    private static final long SECOND_PLAYER_KEY;
+
+    static {
+        Random rand = new Random(0x4D414E43414C41L);
+
+        for (int i = 0; i < PIT_COUNT; i++)
+            for (int j = 0; j <= Byte.MAX_VALUE; j++)
+                STONE_KEYS[i][j] = rand.nextLong();
+
+        SECOND_PLAYER_KEY = rand.nextLong();
+    }
+
+    private byte[] pits;
+    private boolean firstPlayerTurn;
+    private boolean finished;
+
+    /**
+     * Constructor that sets up the starting position of a new game.
+     *
+     * @param stonesPerPit The number of starting stones in every pit.
+     */
+    public GameState(int stonesPerPit) {
+        pits = new byte[PIT_COUNT];
+
+        for (int i = 0; i < PIT_COUNT; i++)
+            if (i != PLAYER_ONE_MANCALA_INDEX && i != PLAYER_TWO_MANCALA_INDEX)
+                pits[i] = (byte) stonesPerPit;
+
+        firstPlayerTurn = true;
+        finished = false;
+    }
+
+    /**
+     * Constructor that initializes all private attributes to the given parameters.
+     *
+     * @param pits The stone count of every container.
+     * @param firstPlayerTurn Whether or not it is the first player's turn.
+     * @param finished Whether or not the game is finished.
+     */
+    public GameState(byte[] pits, boolean firstPlayerTurn, boolean finished) {
+        if (pits.length != PIT_COUNT)
+            throw new IllegalArgumentException("Expected " + PIT_COUNT + " containers but got " + pits.length);
+
+        this.pits = pits.clone();
+        this.firstPlayerTurn = firstPlayerTurn;
+        this.finished = finished;
+    }
+
+    /**
+     * @param index The index of the corresponding container.
+     * @return The number of stones in the container.
+     */
+    public int getStones(int index) {
+        return pits[index];
+    }
+
+    /**
+     * @return True if it is the first player's turn. False otherwise.
+     */
+    public boolean isFirstPlayerTurn() {
+        return firstPlayerTurn;
+    }
+
+    /**
+     * @return True if the game is finished. False otherwise.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return The mancala index of the player to move.
+     */
+    public int getCurrentMancalaIndex() {
+        return firstPlayerTurn ? PLAYER_ONE_MANCALA_INDEX : PLAYER_TWO_MANCALA_INDEX;
+    }
+
+    /**
+     * Determine whether the corresponding container is one of the current player's pits.
+     *
+     * @param index The index of the corresponding container.
+     * @return True if it is one of the player's pits. False otherwise.
+     */
+    public boolean isCorrectSide(int index) {
+        if (firstPlayerTurn)
+            return index >= 0 && index < PLAYER_ONE_MANCALA_INDEX;
+
+        return index > PLAYER_ONE_MANCALA_INDEX && index < PLAYER_TWO_MANCALA_INDEX;
+    }
+
+    /**
+     * @param index The index of the pit to be played.
+     * @return True if the pit can be played by the current player. False otherwise.
+     */
+    public boolean isLegalMove(int index) {
+        return !finished && isCorrectSide(index) && pits[index] > 0;
+    }
+
+    /**
+     * Play the given pit for the current player. The stones are sown the same way the board view sows them: the
+     * opponent's mancala is skipped, a last stone landing in an empty pit of the mover captures the opposite pit and a
+     * last stone landing in the mover's mancala earns another turn.
+     *
+     * @param index The index of the pit to be played.
+     * @return The index of the container that received the last stone.
+     */
+    public int play(int index) {
+        if (!isLegalMove(index))
+            throw new IllegalArgumentException("Illegal move " + index);
+
+        int skipped = firstPlayerTurn ? PLAYER_TWO_MANCALA_INDEX : PLAYER_ONE_MANCALA_INDEX;
+        int mancala = getCurrentMancalaIndex();
+        int stones = pits[index];
+        int last = index;
+        pits[index] = 0;
+
+        while (stones > 0) {
+            last = (last + 1) % PIT_COUNT;
+
+            if (last != skipped) {
+                pits[last]++;
+                stones--;
+            }
+        }
+
+        if (pits[last] == 1 && isCorrectSide(last)) {
+            int opposite = PITS_PER_PLAYER * 2 - last;
+            pits[mancala] += pits[opposite];
+            pits[opposite] = 0;
+        }
+
+        if (last != mancala)
+            firstPlayerTurn = !firstPlayerTurn;
+
+        checkGameStatus();
+        return last;
+    }
+
+    /**
+     * Check to see if the game is finished. It is finished when one side has no stones left, or when it is decided
+     * because a mancala holds more than half of the stones. The stones left in the pits of each side are then placed
+     * in that side's own mancala.
+     */
+    private void checkGameStatus() {
+        int playerOneStones = 0;
+        int playerTwoStones = 0;
+
+        for (int i = 0; i < PITS_PER_PLAYER; i++) {
+            playerOneStones += pits[i];
+            playerTwoStones += pits[i + PITS_PER_PLAYER + 1];
+        }
+
+        int total = playerOneStones + playerTwoStones + pits[PLAYER_ONE_MANCALA_INDEX] + pits[PLAYER_TWO_MANCALA_INDEX];
+
+        if (playerOneStones == 0 || playerTwoStones == 0 ||
+                isDecided(pits[PLAYER_ONE_MANCALA_INDEX], pits[PLAYER_TWO_MANCALA_INDEX], total)) {
+            for (int i = 0; i < PITS_PER_PLAYER; i++) {
+                pits[i] = 0;
+                pits[i + PITS_PER_PLAYER + 1] = 0;
+            }
+
+            pits[PLAYER_ONE_MANCALA_INDEX] += playerOneStones;
+            pits[PLAYER_TWO_MANCALA_INDEX] += playerTwoStones;
+            finished = true;
+        }
+    }
+
+    /**
+     * Whether a game is decided: a mancala holds more than half of the stones, so its player wins no matter how the
+     * rest of the game is played. Stones never leave a mancala, so nothing is gained by playing on.
+     *
+     * @param playerOneStore The number of stones in the first player's mancala.
+     * @param playerTwoStore The number of stones in the second player's mancala.
+     * @param totalStones The number of stones on the board.
+     * @return True if the game is decided. False otherwise.
+     */
+    public static boolean isDecided(int playerOneStore, int playerTwoStore, int totalStones) {
+        return playerOneStore * 2 > totalStones || playerTwoStore * 2 > totalStones;
+    }
+
+    /**
+     * @return The first player's mancala count minus the second player's mancala count.
+     */
+    public int getStoreDifference() {
+        return pits[PLAYER_ONE_MANCALA_INDEX] - pits[PLAYER_TWO_MANCALA_INDEX];
+    }
+
+    /**
+     * @return A copy of the stone counts of every container.
+     */
+    public byte[] getPits() {
+        return pits.clone();
+    }
+
+    /**
+     * Copy the stone counts of every container into an array without allocating.
+     *
+     * @param target The array to copy to.
+     * @param offset The index of the first container in the array.
+     */
+    public void copyPits(byte[] target, int offset) {
+        System.arraycopy(pits, 0, target, offset, PIT_COUNT);
+    }
+
+    /**
+     * Overwrite this state with stone counts copied from an array, without allocating.
+     *
+     * @param source The array to copy from.
+     * @param offset The index of the first container in the array.
+     * @param firstPlayerTurn Whether or not it is the first player's turn.
+     * @param finished Whether or not the game is finished.
+     */
+    public void copyFrom(byte[] source, int offset, boolean firstPlayerTurn, boolean finished) {
+        System.arraycopy(source, offset, pits, 0, PIT_COUNT);
+        this.firstPlayerTurn = firstPlayerTurn;
+        this.finished = finished;
+    }
+
+    /**
+     * @return A hash of the position that is equal for equal positions.
+     */
+    public long hash() {
+        long hash = firstPlayerTurn ? 0 : SECOND_PLAYER_KEY;
+
+        for (int i = 0; i < PIT_COUNT; i++)
+            hash ^= STONE_KEYS[i][pits[i]];
+
+        return hash;
+    }
+
+    /**
+     * Hash the position as seen by the player to move. Swapping the two sides of a position and the player to move
+     * gives the same game with the players' names swapped, so both orientations share one hash and one entry in every
+     * table keyed by it. Moves and scores stored under this hash must be relative to the player to move as well.
+     *
+     * @return A hash that is equal for equal positions and for positions equal after swapping the sides.
+     */
+    public long canonicalHash() {
+        int offset = firstPlayerTurn ? 0 : PITS_PER_PLAYER + 1;
+        long hash = 0;
+
+        for (int i = 0; i < PIT_COUNT; i++)
+            hash ^= STONE_KEYS[i][pits[(i + offset) % PIT_COUNT]];
+
+        return hash;
+    }
+
+    /**
+     * @param index The index of a container.
+     * @return The index of the container as seen by the player to move, as used by canonicalHash.
+     */
+    public int toCanonicalIndex(int index) {
+        return firstPlayerTurn ? index : (index + PITS_PER_PLAYER + 1) % PIT_COUNT;
+    }
+
+    /**
+     * @param canonicalIndex The index of a container as seen by the player to move.
+     * @return The actual index of the container.
+     */
+    public int fromCanonicalIndex(int canonicalIndex) {
+        return firstPlayerTurn ? canonicalIndex : (canonicalIndex + PITS_PER_PLAYER + 1) % PIT_COUNT;
+    }
+
+    /**
+     * Overwrite this state with another one without allocating.
+     *
+     * @param other The state to copy.
+     */
+    public void copyFrom(GameState other) {
+        System.arraycopy(other.pits, 0, pits, 0, PIT_COUNT);
+        firstPlayerTurn = other.firstPlayerTurn;
+        finished = other.finished;
+    }
+
+    /**
+     * @return A deep copy of this class.
+     */
+    public GameState clone() {
+        GameState clone = null;
+
+        try {
+            clone = (GameState) super.clone();
+            clone.pits = pits.clone();
+        } catch (CloneNotSupportedException e) {}
+
+        return clone;
+    }
+}
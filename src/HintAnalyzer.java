@@ -0,0 +1,148 @@
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.swing.*;
+
+/**
+ * Analyzes the position on the board in the background for the hint overlay: every move of the player to move is
+ * searched with iterative deepening, and the board is sent the scores after every completed depth, so the hints get
+ * better the longer the position stays on the board.
+ *
+ * The analysis has its own search engine and a low priority thread, so it never shares a transposition table or a
+ * thread with the computer opponent. Every completed analysis is kept in an AnalysisCache, so going back to a position
+ * shows its analysis at once and only searches deeper than before.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class HintAnalyzer {
+    public static final int MAX_DEPTH = 14;
+
+    private final BoardView boardView;
+    private final SearchEngine engine;
+    private final AnalysisCache cache;
+    private final ExecutorService analysisThread;
+    private AtomicBoolean stop;
+
+    /**
+     * Constructor that initializes all private attributes.
+     *
+     * @param boardView The board the analyses are shown on.
+     */
+    public HintAnalyzer(BoardView boardView) {
+        this.boardView = boardView;
+        engine = new SearchEngine(18);
+        engine.setEvaluator(Evaluator.loadDefault());
+        cache = new AnalysisCache(AnalysisCache.DEFAULT_CAPACITY);
+        analysisThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "hints");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        stop = new AtomicBoolean(true);
+    }
+
+    /**
+     * Stop the analysis of the previous position and start analyzing another one. A cached analysis is shown at once.
+     *
+     * @param position The position to analyze. It must not be changed afterwards.
+     */
+    public void analyze(final GameState position) {
+        cancel();
+
+        if (position.isFinished())
+            return;
+
+        final Analysis cached = cache.get(position);
+
+        if (cached != null)
+            boardView.showAnalysis(position, cached);
+
+        if (cached != null && cached.getDepth() >= MAX_DEPTH)
+            return;
+
+        final AtomicBoolean analysisStop = new AtomicBoolean(false);
+        stop = analysisStop;
+
+        analysisThread.execute(new Runnable() {
+            public void run() {
+                for (int depth = cached == null ? 1 : cached.getDepth() + 1; depth <= MAX_DEPTH; depth++) {
+                    final Analysis analysis = search(position, depth, analysisStop);
+
+                    if (analysis == null)
+                        return;
+
+                    cache.put(position, analysis);
+
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            if (!analysisStop.get())
+                                boardView.showAnalysis(position, analysis);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop analyzing, like when the computer opponent is about to think.
+     */
+    public void cancel() {
+        stop.set(true);
+    }
+
+    /**
+     * @return The analyses of earlier positions.
+     */
+    public AnalysisCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Score every move of a position.
+     *
+     * @param position The position.
+     * @param depth The depth to search every move to, counting the move itself.
+     * @param stop A flag that stops the search as soon as it is set.
+     * @return The analysis, or null if it was stopped.
+     */
+    private Analysis search(GameState position, int depth, AtomicBoolean stop) {
+        int[] scores = new int[GameState.PIT_COUNT];
+        int bestMove = -1;
+        GameState child = new GameState(0);
+
+        for (int i = 0; i < GameState.PIT_COUNT; i++) {
+            scores[i] = Analysis.NO_SCORE;
+
+            if (!position.isLegalMove(i))
+                continue;
+
+            child.copyFrom(position);
+            child.play(i);
+            int score;
+
+            if (child.isFinished() || depth == 1)
+                score = engine.search(child, 0, 0, stop).getScore();
+            else {
+                SearchResult result = engine.search(child, depth - 1, 0, stop);
+
+                if (result.getDepth() < depth - 1)
+                    return null;
+
+                score = result.getScore();
+            }
+
+            if (stop.get())
+                return null;
+
+            scores[i] = child.isFirstPlayerTurn() == position.isFirstPlayerTurn() ? score : -score;
+
+            if (bestMove < 0 || scores[i] > scores[bestMove])
+                bestMove = i;
+        }
+
+        return new Analysis(scores, bestMove, depth);
+    }
+}
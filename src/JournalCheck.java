@@ -0,0 +1,171 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A check that the MoveJournal survives a crash in the middle of compacting it. A journal of random games is written,
+ * then recovered twice from copies of its segments: once as the server would find it after a crash that cut the
+ * compacted segment short, and once after a crash between renaming the compacted segment into place and deleting the
+ * old segments. Both must give back every unfinished game with all of its moves, and so must the journal they were
+ * compacted into.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class JournalCheck {
+    public static final int GAMES = 40;
+    public static final long SEED = 0x4A524E4CL;
+
+    /**
+     * Write a journal, simulate both crashes and exit with status 1 if a game or a move was lost.
+     *
+     * @param args Unused.
+     * @throws IOException If a journal cannot be written or read.
+     */
+    public static void main(String[] args) throws IOException {
+        File root = Files.createTempDirectory("journal-check").toFile();
+
+        try {
+            File original = new File(root, "original");
+            writeJournal(original, new Random(SEED));
+            Map<Integer, String> expected = recoverCopy(original, new File(root, "expected"));
+            File compacted = new File(root, "expected").listFiles()[0];
+
+            int records = 1; //The highest game id
+
+            for (String game : expected.values())
+                records += game.split(" ").length; //Created with its stones per pit, then every move
+
+            File cut = copy(original, new File(root, "cut"));
+            byte[] half = Arrays.copyOf(Files.readAllBytes(compacted.toPath()), records / 2 * MoveJournal.RECORD_SIZE);
+            Files.write(new File(cut, compacted.getName() + ".tmp").toPath(), half);
+
+            File renamed = copy(original, new File(root, "renamed"));
+            Files.copy(compacted.toPath(), new File(renamed, compacted.getName()).toPath());
+
+            java.util.List<String> failures = new ArrayList<String>();
+            compare("compacted segment cut short", expected, recoverCopy(cut, new File(root, "cut-again")), failures);
+            compare("compacted segment cut short, recovered again", expected, recover(cut), failures);
+            compare("old segments left behind", expected, recoverCopy(renamed, new File(root, "renamed-again")),
+                    failures);
+            compare("old segments left behind, recovered again", expected, recover(renamed), failures);
+
+            System.out.println(expected.size() + " unfinished games recovered after every crash");
+
+            for (String failure : failures)
+                System.out.println("Lost: " + failure);
+
+            if (!failures.isEmpty())
+                System.exit(1);
+        } finally {
+            delete(root);
+        }
+    }
+
+    /**
+     * Journal random games. Some are played to the end, the others are left unfinished.
+     *
+     * @param directory The directory of the journal.
+     * @param rand The source of the moves.
+     * @throws IOException If the journal cannot be written.
+     */
+    private static void writeJournal(File directory, Random rand) throws IOException {
+        MoveJournal journal = new MoveJournal(directory);
+        journal.recover();
+
+        for (int id = 1; id <= GAMES; id++) {
+            GameState state = new GameState(3 + id % 4);
+            int moves = rand.nextInt(60);
+            journal.create(id, 3 + id % 4);
+
+            for (int i = 0; i < moves && !state.isFinished(); i++) {
+                int move;
+
+                do {
+                    move = rand.nextInt(GameState.PIT_COUNT);
+                } while (!state.isLegalMove(move));
+
+                state.play(move);
+                journal.move(id, move);
+            }
+
+            if (state.isFinished())
+                journal.end(id);
+        }
+
+        journal.close();
+    }
+
+    /**
+     * @param source The directory of a journal.
+     * @param target A directory to copy it to.
+     * @return The games recovered from the copy.
+     * @throws IOException If the journal cannot be copied or read.
+     */
+    private static Map<Integer, String> recoverCopy(File source, File target) throws IOException {
+        return recover(copy(source, target));
+    }
+
+    /**
+     * @param directory The directory of a journal.
+     * @return The games recovered from it, as their stones per pit and moves by id.
+     * @throws IOException If the journal cannot be read.
+     */
+    private static Map<Integer, String> recover(File directory) throws IOException {
+        MoveJournal journal = new MoveJournal(directory);
+        Map<Integer, String> games = new TreeMap<Integer, String>();
+
+        for (Map.Entry<Integer, MoveJournal.Game> entry : journal.recover().entrySet()) {
+            MoveJournal.Game game = entry.getValue();
+            StringBuilder moves = new StringBuilder(Integer.toString(game.getStonesPerPit()));
+
+            for (int i = 0; i < game.getMoveCount(); i++)
+                moves.append(' ').append(game.getMove(i));
+
+            games.put(entry.getKey(), moves.toString());
+        }
+
+        journal.close();
+        return games;
+    }
+
+    /**
+     * @param crash The crash that was simulated.
+     * @param expected The games that must be recovered.
+     * @param actual The games that were recovered.
+     * @param failures The list every difference is added to.
+     */
+    private static void compare(String crash, Map<Integer, String> expected, Map<Integer, String> actual,
+            java.util.List<String> failures) {
+        if (!expected.equals(actual))
+            failures.add(crash + ": expected " + expected + " but recovered " + actual);
+    }
+
+    /**
+     * @param source A directory of files.
+     * @param target The directory to copy them to.
+     * @return The target directory.
+     * @throws IOException If a file cannot be copied.
+     */
+    private static File copy(File source, File target) throws IOException {
+        if (!target.mkdirs())
+            throw new IOException("Could not create " + target);
+
+        for (File file : source.listFiles())
+            Files.copy(file.toPath(), new File(target, file.getName()).toPath());
+
+        return target;
+    }
+
+    /**
+     * @param file A file or a directory to delete with everything in it.
+     */
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+
+        if (files != null)
+            for (File child : files)
+                delete(child);
+
+        file.delete();
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * A histogram of latencies in nanoseconds with a fixed number of buckets, so recording a latency never allocates.
+ * Every power of two is split into SUB_BUCKETS buckets of the same width, which keeps every percentile within about
+ * six percent of the true latency from nanoseconds to minutes.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class LatencyHistogram {
+    public static final int SUB_BITS = 4;
+    public static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final long[] counts;
+    private long count;
+    private long max;
+
+    /**
+     * Constructor that initializes all private attributes.
+     */
+    public LatencyHistogram() {
+        counts = new long[(64 - SUB_BITS) * SUB_BUCKETS];
+        count = 0;
+        max = 0;
+    }
+
+    /**
+     * @param nanos A latency.
+     */
+    public void record(long nanos) {
+        counts[bucketOf(Math.max(nanos, 0))]++;
+        count++;
+        max = Math.max(max, nanos);
+    }
+
+    /**
+     * @return The number of latencies recorded.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The highest latency recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @param percentile The percentile, like 99 for the latency that 99 percent of the latencies do not exceed.
+     * @return The upper bound of the bucket of the percentile, never more than the highest latency, or 0 if nothing was
+     *         recorded.
+     */
+    public long getPercentile(double percentile) {
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+
+            if (seen >= rank && seen > 0)
+                return Math.min(upperBoundOf(i), max);
+        }
+
+        return max;
+    }
+
+    /**
+     * Forget every latency recorded.
+     */
+    public void clear() {
+        java.util.Arrays.fill(counts, 0);
+        count = 0;
+        max = 0;
+    }
+
+    /**
+     * @param nanos A latency that is not negative.
+     * @return The index of its bucket.
+     */
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS * 2)
+            return (int) nanos;
+
+        int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BITS;
+        return shift * SUB_BUCKETS + (int) (nanos >>> shift);
+    }
+
+    /**
+     * @param bucket The index of a bucket.
+     * @return The highest latency that falls into the bucket.
+     */
+    private static long upperBoundOf(int bucket) {
+        int shift = Math.max(bucket / SUB_BUCKETS - 1, 0);
+        long lower = (long) (bucket - shift * SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
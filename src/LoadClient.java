@@ -0,0 +1,162 @@
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A test client that plays many random games against a game server over the loopback address. Every client thread
+ * keeps its own connection and plays its games one move at a time.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class LoadClient implements Callable<Integer> {
+    private final int port;
+    private final int games;
+    private final int stonesPerPit;
+    private final Random rand;
+
+    /**
+     * Constructor that initializes all private attributes.
+     *
+     * @param port The port of the server.
+     * @param games The number of games this client plays.
+     * @param stonesPerPit The number of starting stones in every pit.
+     * @param seed The seed used to pick the moves.
+     */
+    public LoadClient(int port, int games, int stonesPerPit, long seed) {
+        this.port = port;
+        this.games = games;
+        this.stonesPerPit = stonesPerPit;
+        rand = new Random(seed);
+    }
+
+    /**
+     * Play all games of this client.
+     *
+     * @return The number of moves played.
+     * @throws IOException If the connection to the server fails.
+     */
+    public Integer call() throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.US_ASCII));
+        Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+        int moves = 0;
+
+        try {
+            for (int g = 0; g < games; g++) {
+                send(out, GameProtocol.NEW + " " + stonesPerPit);
+                RemoteBoard board = new RemoteBoard(Integer.parseInt(in.readLine().split(" ")[1]));
+                update(board, in, out);
+
+                while (!board.getState().isFinished()) {
+                    send(out, GameProtocol.MOVE + " " + board.getId() + " " + randomMove(board.getState()));
+                    update(board, in, out);
+                    moves++;
+                }
+            }
+
+            send(out, GameProtocol.QUIT);
+        } finally {
+            socket.close();
+        }
+
+        return moves;
+    }
+
+    /**
+     * @param state The current state of the game.
+     * @return A random legal move.
+     */
+    private int randomMove(GameState state) {
+        int[] legal = new int[GameState.PITS_PER_PLAYER];
+        int count = 0;
+
+        for (int i = 0; i < GameState.PIT_COUNT; i++)
+            if (state.isLegalMove(i))
+                legal[count++] = i;
+
+        return legal[rand.nextInt(count)];
+    }
+
+    /**
+     * Apply the next update sent by the server, asking for a snapshot until the board is in sync.
+     *
+     * @param board The local copy of the game.
+     * @param in The stream of the server.
+     * @param out The stream to the server.
+     * @throws IOException If the server sent something else.
+     */
+    private static void update(RemoteBoard board, BufferedReader in, Writer out) throws IOException {
+        do {
+            String line = in.readLine();
+
+            if (line == null || line.startsWith(GameProtocol.ERROR))
+                throw new IOException("Unexpected reply: " + line);
+
+            if (board.apply(line))
+                send(out, GameProtocol.SYNC + " " + board.getId());
+        } while (!board.isSynchronized());
+    }
+
+    /**
+     * @param out The stream of the server.
+     * @param line The line to send.
+     * @throws IOException If the line could not be sent.
+     */
+    private static void send(Writer out, String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * Run many clients against a server. When no port is given a server is started in this process.
+     *
+     * @param args clients, games per client and the optional port.
+     * @throws Exception If a client fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int gamesPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        GameServer server = null;
+        int port;
+
+        if (args.length > 2)
+            port = Integer.parseInt(args[2]);
+        else {
+            final GameServer local = new GameServer(0);
+            Thread acceptor = new Thread(new Runnable() {
+                public void run() {
+                    local.run();
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+            server = local;
+            port = local.getPort();
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < clients; i++)
+            results.add(pool.submit(new LoadClient(port, gamesPerClient, 4, i)));
+
+        long moves = 0;
+
+        for (Future<Integer> result : results)
+            moves += result.get();
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d games, %d moves in %.2fs (%.0f moves/s)%n", clients * gamesPerClient, moves, seconds,
+                moves / seconds);
+        pool.shutdown();
+
+        if (server != null)
+            server.close();
+    }
+}
@@ -1,11 +1,119 @@
+import java.io.*;
+import java.lang.management.*;
+import java.util.*;
+
 /**
- * The main class to test the functionality of the program.
+ * The main class to test the functionality of the program. The first argument picks the mode:
+ *
+ * <pre>
+ * (none)                       the board
+ * server [port] [journalDir]   the headless game server
+ * load [clients] [games] [port] random clients playing against a server
+ * tune generate|train ...      self-play datasets and evaluation weight tuning, see EvalTuner
+ * export selfplay|records ...  columnar training data of searched positions, see ColumnarWriter
+ * farm store batches games workers ...  self-play in worker processes, see SelfPlayCoordinator
+ * engine                       the engine over standard input and output, see EngineProtocol
+ * tournament first second openings ...  two engine command lines against each other, see Tournament
+ * render dir games [scale] ...  thumbnails and replay frames of random games, see BoardRenderer
+ * budget [games] [bytes] [p99Micros] [dir]  the allocation and latency gate of the move path, see MoveBudget
+ * warmup                       a short headless run of the server, the engine and a farm worker, used to record the
+ *                              class data sharing archive
+ * </pre>
+ *
+ * The server, load, tune, export, farm, engine and tournament modes never touch the board, so no AWT or Swing class is
+ * loaded for them. The render and budget modes run with headless AWT: render draws with it, and budget plays on
+ * container views and a sowing animator that are never shown.
  *
  * @author David Tang, Jonathan Yee, Stefan Schmainta
  */
 public class Main {
-    public static void main(String[] args) {
-        Model model = new Model();
-        BoardView mainView = new BoardView(model);
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "";
+        String[] modeArgs = args.length > 0 ? Arrays.copyOfRange(args, 1, args.length) : args;
+
+        if (mode.equals("server"))
+            GameServer.main(modeArgs);
+        else if (mode.equals("load"))
+            LoadClient.main(modeArgs);
+        else if (mode.equals("tune"))
+            EvalTuner.main(modeArgs);
+        else if (mode.equals("export"))
+            ColumnarWriter.main(modeArgs);
+        else if (mode.equals("farm"))
+            SelfPlayCoordinator.main(modeArgs);
+        else if (mode.equals("engine"))
+            EngineServer.main(modeArgs);
+        else if (mode.equals("tournament"))
+            Tournament.main(modeArgs);
+        else if (mode.equals("render")) {
+            System.setProperty("java.awt.headless", "true");
+            BoardRenderer.main(modeArgs);
+        }
+        else if (mode.equals("budget")) {
+            System.setProperty("java.awt.headless", "true");
+            MoveBudget.main(modeArgs);
+        }
+        else if (mode.equals("warmup"))
+            warmup();
+        else
+            startBoard();
+    }
+
+    /**
+     * The command that starts a child JVM of this program, like an engine or a farm worker. It has the class path of
+     * this JVM and the same class data sharing archive, so the children start as fast as the parent.
+     *
+     * @param jvmOptions Options for the child JVM, like a heap size.
+     * @param mainClass The class whose main method the child runs.
+     * @return The command line, to which the arguments of the child can be added.
+     */
+    public static java.util.List<String> getChildCommand(java.util.List<String> jvmOptions, String mainClass) {
+        ArrayList<String> command = new ArrayList<String>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+
+        for (String option : ManagementFactory.getRuntimeMXBean().getInputArguments())
+            if (option.startsWith("-XX:SharedArchiveFile="))
+                command.add(option);
+
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass);
+        return command;
+    }
+
+    /**
+     * Load every class the child processes load most: play games against a server, let the engine answer over its
+     * protocol and play a small farm batch.
+     *
+     * @throws Exception If a part of the run fails.
+     */
+    private static void warmup() throws Exception {
+        LoadClient.main(new String[] {"4", "25"});
+        EngineServer.warmup(8, 10);
+        File staging = File.createTempFile("warmup", ".tmp");
+        staging.delete();
+        staging.mkdir();
+
+        try {
+            new SelfPlayWorker().play(new SelfPlayCoordinator.Batch(0, 2, 4, 6, 4, 1, true, "store"), staging);
+        } finally {
+            for (File chunk : staging.listFiles())
+                chunk.delete();
+
+            staging.delete();
+        }
+    }
+
+    /**
+     * Build the board on the event dispatch thread.
+     */
+    private static void startBoard() {
+        javax.swing.SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                Model model = new Model();
+                BoardView mainView = new BoardView(model);
+            }
+        });
     }
 }
\ No newline at end of file
@@ -2,17 +2,19 @@ import javax.swing.*;
 import java.util.*;
 
 /**
- * The model that holds the stones and views that must be notified of changes.
+ * The model that holds the stones and views that must be notified of changes. A model without views or a board view
+ * works headless, like in the MoveBudget harness.
  *
  * @author David Tang, Jonathan Yee, Stefan Schmainta
  */
 public class Model implements Cloneable {
-    public static final int PITS_PER_PLAYER = 6;
+    public static final int PITS_PER_PLAYER = GameState.PITS_PER_PLAYER;
     public static final int MAX_TAKE_BACK_PER_TURN = 3;
 
     private Model previousPosition;
-    private ArrayList<ContainingShape>[] model;
+    private ArrayList<Stone>[] model;
     private BoardView primaryView;
+    private SowingAnimator animator;
     private ArrayList<StoneContainerView> views;
     private int takeBackCount;
     private boolean firstPlayerTurn;
@@ -24,6 +26,7 @@ public class Model implements Cloneable {
     public Model() {
         previousPosition = null;
         primaryView = null;
+        animator = null;
         model = new ArrayList[(PITS_PER_PLAYER + 1) * 2];
         views = new ArrayList();
 
@@ -45,23 +48,36 @@ public class Model implements Cloneable {
     }
 
     /**
-     * Add a stone to the model and notify the corresponding view.
+     * Add a stone to the model and notify the corresponding view. The stone takes the next free slot of the container.
      *
      * @param stone The stone to be added.
      * @param index The index of the corresponding model.
      */
-    public void addStone(ContainingShape stone, int index) {
-        stone.setX(views.get(index).getContainer().getWidth() / 4 + model[index].size() / 8 * stone.getWidth());
-        stone.setY(views.get(index).getContainer().getHeight() / 4 + (model[index].size() * stone.getHeight()) % (stone.getHeight() * 8));
+    public void addStone(Stone stone, int index) {
         model[index].add(stone);
-        views.get(index).repaint(); //Notify view
+        repaint(index); //Notify view
+    }
+
+    /**
+     * Add a stone that was taken from another container and animate its move there.
+     *
+     * @param stone The stone to be moved. It must already be removed from the container it came from.
+     * @param from The index of the container the stone came from.
+     * @param fromSlot The slot the stone had in the container it came from.
+     * @param index The index of the corresponding model.
+     */
+    public void moveStone(Stone stone, int from, int fromSlot, int index) {
+        addStone(stone, index);
+
+        if (animator != null)
+            animator.addFlight(stone, from, fromSlot, index, model[index].size() - 1);
     }
 
     /**
      * @param index The index of the corresponding model.
      * @return The corresponding model.
      */
-    public ArrayList<ContainingShape> getModel(int index) {
+    public ArrayList<Stone> getModel(int index) {
         return model[index];
     }
 
@@ -103,10 +119,10 @@ public class Model implements Cloneable {
      * @param index The index of the corresponding stone container model.
      * @return The stones that have been removed.
      */
-    public ArrayList<ContainingShape> removeAllContainerStones(int index) {
-        ArrayList<ContainingShape> temp = model[index];
+    public ArrayList<Stone> removeAllContainerStones(int index) {
+        ArrayList<Stone> temp = model[index];
         model[index] = new ArrayList();
-        views.get(index).repaint();
+        repaint(index);
         return temp;
     }
 
@@ -131,7 +147,8 @@ public class Model implements Cloneable {
     public void resetTakeBackCount() {
         takeBackCount = 0;
 
-        if (previousPosition != null && previousPosition.takeBackCount < Model.MAX_TAKE_BACK_PER_TURN)
+        if (primaryView != null && previousPosition != null &&
+                previousPosition.takeBackCount < Model.MAX_TAKE_BACK_PER_TURN)
             primaryView.enableTakeBack();
     }
 
@@ -152,20 +169,16 @@ public class Model implements Cloneable {
     }
 
     /**
-     * Creates a copy of the current position. Only the stone containers will contain a deep copy.
+     * Creates a copy of the current position. Only the stone containers are copied; the stones themselves are shared
+     * since they never change.
      */
     public void copyPosition() {
         try {
             previousPosition = (Model) super.clone();
             previousPosition.model = model.clone();
 
-            for (int i = 0; i < (PITS_PER_PLAYER + 1) * 2; i++) {
-                ArrayList<ContainingShape> temp = previousPosition.model[i];
-                previousPosition.model[i] = new ArrayList();
-
-                for (ContainingShape shape : temp)
-                    previousPosition.model[i].add(shape.clone());
-            }
+            for (int i = 0; i < (PITS_PER_PLAYER + 1) * 2; i++)
+                previousPosition.model[i] = new ArrayList<Stone>(model[i]);
         } catch (CloneNotSupportedException ex) {}
     }
 
@@ -206,12 +219,29 @@ public class Model implements Cloneable {
     }
 
     /**
-     * Check to see if the game is finished.
+     * Check to see if the game is finished: one side's pits are empty, or a mancala holds more than half of the
+     * stones so the game is decided. The stones left in each side's pits are then moved to that side's mancala.
      */
     public void checkGameStatus() {
-        if (firstPlayerPitsEmpty() || secondPlayerPitsEmpty()) {
+        int total = 0;
+
+        for (int i = 0; i < (PITS_PER_PLAYER + 1) * 2; i++)
+            total += model[i].size();
+
+        if (pitsEmpty(0) || pitsEmpty(PITS_PER_PLAYER + 1) ||
+                GameState.isDecided(model[BoardView.PLAYER_ONE_MANCALA_INDEX].size(),
+                        model[BoardView.PLAYER_TWO_MANCALA_INDEX].size(), total)) {
+            for (int i = 0; i < PITS_PER_PLAYER; i++) {
+                moveAllStones(i, BoardView.PLAYER_ONE_MANCALA_INDEX);
+                moveAllStones(i + PITS_PER_PLAYER + 1, BoardView.PLAYER_TWO_MANCALA_INDEX);
+            }
+
             int playerOneCount = model[BoardView.PLAYER_ONE_MANCALA_INDEX].size();
             int playerTwoCount = model[BoardView.PLAYER_TWO_MANCALA_INDEX].size();
+            gameFinished = true;
+
+            if (primaryView == null)
+                return;
 
             if (playerOneCount > playerTwoCount)
                 JOptionPane.showMessageDialog(null, "Player one wins!");
@@ -219,57 +249,135 @@ public class Model implements Cloneable {
                 JOptionPane.showMessageDialog(null, "Player two wins!");
             else
                 JOptionPane.showMessageDialog(null, "Tie game!");
-
-            gameFinished = true;
         }
     }
 
     /**
-     * Check if all the first player's pits are empty. If it is, it places all the remaining stones in the second
-     * player's pits to its own mancala.
-     *
-     * @return True if all of the first player's pits are empty. False otherwise.
+     * @param first The index of the first pit of a side.
+     * @return True if all of the side's pits are empty. False otherwise.
      */
-    private boolean firstPlayerPitsEmpty() {
-        for (int i = 0; i < Model.PITS_PER_PLAYER; i++)
+    private boolean pitsEmpty(int first) {
+        for (int i = first; i < first + PITS_PER_PLAYER; i++)
             if (model[i].size() > 0)
                 return false;
 
-        for (int i = Model.PITS_PER_PLAYER + 1; i < (Model.PITS_PER_PLAYER + 1) * 2 - 1; i++) {
-            int count = model[i].size();
+        return true;
+    }
+
+    /**
+     * Move every stone of a container to another one at once and animate their moves.
+     *
+     * @param from The index of the container to empty.
+     * @param index The index of the container that receives the stones.
+     */
+    private void moveAllStones(int from, int index) {
+        ArrayList<Stone> stones = model[from];
+
+        if (stones.isEmpty())
+            return;
+
+        int start = model[index].size();
+        model[index].addAll(stones);
+        model[from] = new ArrayList<Stone>();
+        repaint(from);
+        repaint(index);
+
+        if (animator != null)
+            for (int slot = 0; slot < stones.size(); slot++)
+                animator.addFlight(stones.get(slot), from, slot, index, start + slot);
+    }
+
+    /**
+     * Show a position, like a ply of a replay. Containers keep the stones they have in common with the position, so
+     * stepping through a game only adds or removes the stones that differ.
+     *
+     * @param state The position to show.
+     */
+    public void setPosition(GameState state) {
+        for (int i = 0; i < (PITS_PER_PLAYER + 1) * 2; i++) {
+            if (model[i].size() == state.getStones(i))
+                continue;
+
+            while (model[i].size() > state.getStones(i))
+                model[i].remove(model[i].size() - 1);
 
-            for (int j = 0; j < count; j++)
-                addStone(model[i].remove(0), BoardView.PLAYER_TWO_MANCALA_INDEX);
+            while (model[i].size() < state.getStones(i))
+                model[i].add(Stone.random());
 
-            views.get(i).repaint();
-            views.get(BoardView.PLAYER_TWO_MANCALA_INDEX).repaint();
+            repaint(i);
         }
 
-        return true;
+        firstPlayerTurn = state.isFirstPlayerTurn();
+        gameFinished = state.isFinished();
     }
 
     /**
-     * Check if all the second player's pits are empty. If it is, it places all the remaining stones in the first
-     * player's pits to its own mancala.
+     * Sow the stones of a pit for the current player: the opponent's mancala is skipped, a last stone landing in an
+     * empty pit of the mover captures the opposite pit and a last stone landing in the mover's mancala earns another
+     * turn. The caller must make sure that the pit is not empty and that it is the current player's pit.
      *
-     * @return True if all of the second player's pits are empty. False otherwise.
+     * @param index The index of the pit to be played.
      */
-    private boolean secondPlayerPitsEmpty() {
-        for (int i = Model.PITS_PER_PLAYER + 1; i < (Model.PITS_PER_PLAYER + 1) * 2 - 1; i++)
-            if (model[i].size() > 0)
-                return false;
+    public void playPit(int index) {
+        int pitIndex = index;
+        int trueIndex = 0;
 
-        for (int i = 0; i < Model.PITS_PER_PLAYER; i++) {
-            int count = model[i].size();
+        ArrayList<Stone> stones = removeAllContainerStones(index);
 
-            for (int j = 0; j < count; j++)
-                addStone(model[i].remove(0), BoardView.PLAYER_ONE_MANCALA_INDEX);
+        for (int i = 0; i < stones.size(); i++) {
+            trueIndex = ++pitIndex % ((PITS_PER_PLAYER + 1) * 2);
 
-            views.get(i).repaint();
-            views.get(BoardView.PLAYER_ONE_MANCALA_INDEX).repaint();
+            if (firstPlayerTurn && trueIndex != BoardView.PLAYER_TWO_MANCALA_INDEX ||
+                    !firstPlayerTurn && trueIndex != BoardView.PLAYER_ONE_MANCALA_INDEX)
+                moveStone(stones.get(i), index, i, trueIndex);
+            else
+                i--;
         }
 
-        return true;
+        if (model[trueIndex].size() == 1 && isCorrectSide(trueIndex) &&
+                trueIndex != BoardView.PLAYER_TWO_MANCALA_INDEX) {
+            Iterator<Stone> it = model[12 - trueIndex].iterator();
+
+            for (int slot = 0; it.hasNext(); slot++) {
+                Stone stone = it.next();
+                it.remove();
+
+                if (firstPlayerTurn)
+                    moveStone(stone, 12 - trueIndex, slot, BoardView.PLAYER_ONE_MANCALA_INDEX);
+                else
+                    moveStone(stone, 12 - trueIndex, slot, BoardView.PLAYER_TWO_MANCALA_INDEX);
+            }
+
+            repaint(12 - trueIndex);
+        }
+
+        if (firstPlayerTurn && trueIndex != BoardView.PLAYER_ONE_MANCALA_INDEX ||
+                !firstPlayerTurn && trueIndex != BoardView.PLAYER_TWO_MANCALA_INDEX)
+            switchPlayers();
+
+        checkGameStatus();
+    }
+
+    /**
+     * Notify the view of a container, if there is one.
+     *
+     * @param index The index of the container.
+     */
+    private void repaint(int index) {
+        if (index < views.size())
+            views.get(index).repaint();
+    }
+
+    /**
+     * @return A compact copy of the current position that the search engine can work with.
+     */
+    public GameState toGameState() {
+        byte[] pits = new byte[(PITS_PER_PLAYER + 1) * 2];
+
+        for (int i = 0; i < (PITS_PER_PLAYER + 1) * 2; i++)
+            pits[i] = (byte) model[i].size();
+
+        return new GameState(pits, firstPlayerTurn, gameFinished);
     }
 
     /**
@@ -287,4 +395,20 @@ public class Model implements Cloneable {
     public void setPrimaryView(BoardView primaryView) {
         this.primaryView = primaryView;
     }
+
+    /**
+     * @return The animator that is told about every stone that moves, or null.
+     */
+    public SowingAnimator getAnimator() {
+        return animator;
+    }
+
+    /**
+     * Keep a reference of the animator that is told about every stone that moves.
+     *
+     * @param animator The animator, or null to move stones without animating them.
+     */
+    public void setAnimator(SowingAnimator animator) {
+        this.animator = animator;
+    }
 }
@@ -0,0 +1,335 @@
+import java.io.*;
+import java.lang.management.*;
+import java.lang.reflect.*;
+import java.util.*;
+import javax.swing.*;
+
+/**
+ * A gate on the cost of the move path of the board: a fixed corpus of games is played headless through the Model, the
+ * way the board plays a pit, and the run fails when the bytes allocated per move or the 99th percentile latency of a
+ * move exceed their budgets. Copying the position for take backs, moving stones between containers, repainting them
+ * and launching their flights allocate on every move, so a change that makes them allocate more is caught before it
+ * reaches the board.
+ *
+ * Every game is played on a board of container views and a sowing animator that is never shown, on the event dispatch
+ * thread like the real board, so the repaints and flights of a move are measured with the move.
+ *
+ * Every move is also played on a GameState, and the run fails if the Model and the rules of the search engine ever
+ * disagree about a position.
+ *
+ * The corpus is a fixed number of random games from a fixed seed, optionally with the saved games of a directory. It
+ * is played a few times before it is measured, so the measurement is of compiled code.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class MoveBudget {
+    public static final int DEFAULT_GAMES = 500;
+    public static final long DEFAULT_BYTES_PER_MOVE = 2048;
+    public static final long DEFAULT_P99_MICROS = 50;
+    public static final int WARMUP_ROUNDS = 5;
+    public static final long SEED = 0x4D4F5645L;
+
+    private final java.util.List<GameRecord> corpus;
+    private final com.sun.management.ThreadMXBean threads;
+    private final LatencyHistogram latencies;
+    private long moves;
+    private long bytes;
+    private long maxBytes;
+
+    /**
+     * Constructor that initializes all private attributes.
+     *
+     * @param corpus The games to play.
+     */
+    public MoveBudget(java.util.List<GameRecord> corpus) {
+        this.corpus = corpus;
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if (bean instanceof com.sun.management.ThreadMXBean &&
+                ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        else
+            threads = null;
+
+        latencies = new LatencyHistogram();
+    }
+
+    /**
+     * @param games The number of games.
+     * @param rand The source of the moves.
+     * @return Random games, with three to six starting stones per pit.
+     */
+    public static java.util.List<GameRecord> randomCorpus(int games, Random rand) {
+        java.util.List<GameRecord> corpus = new ArrayList<GameRecord>(games);
+
+        for (int i = 0; i < games; i++) {
+            GameRecord record = new GameRecord(3 + i % 4);
+            GameState state = new GameState(record.getStonesPerPit());
+
+            while (!state.isFinished()) {
+                int move;
+
+                do {
+                    move = rand.nextInt(GameState.PIT_COUNT);
+                } while (!state.isLegalMove(move));
+
+                state.play(move);
+                record.addMove(move);
+            }
+
+            corpus.add(record);
+        }
+
+        return corpus;
+    }
+
+    /**
+     * Play the corpus until the code is compiled, then play it once more and measure every move. It must be called on
+     * the event dispatch thread, which the timer of the animator runs on.
+     */
+    public void measure() {
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+            playCorpus(false);
+
+        latencies.clear();
+        moves = 0;
+        bytes = 0;
+        maxBytes = 0;
+        playCorpus(true);
+    }
+
+    /**
+     * @return True if the allocated bytes could be measured. False if this JVM cannot count them.
+     */
+    public boolean isMeasuringBytes() {
+        return threads != null;
+    }
+
+    /**
+     * @return The number of moves measured.
+     */
+    public long getMoves() {
+        return moves;
+    }
+
+    /**
+     * @return The mean bytes allocated per move.
+     */
+    public double getBytesPerMove() {
+        return bytes / (double) Math.max(moves, 1);
+    }
+
+    /**
+     * @return The most bytes allocated by one move.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return The latencies of the moves.
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @param maxBytesPerMove The budget of the mean bytes allocated per move.
+     * @param maxP99Micros The budget of the 99th percentile latency of a move, in microseconds, or 0 to only check the
+     *                     allocations, which unlike the latency do not depend on how busy the machine is.
+     * @return The budgets that are exceeded, empty if none are.
+     */
+    public java.util.List<String> check(long maxBytesPerMove, long maxP99Micros) {
+        java.util.List<String> failures = new ArrayList<String>();
+
+        if (isMeasuringBytes() && getBytesPerMove() > maxBytesPerMove)
+            failures.add(String.format("%.0f bytes per move, budget %d", getBytesPerMove(), maxBytesPerMove));
+
+        if (maxP99Micros > 0 && latencies.getPercentile(99) > maxP99Micros * 1000)
+            failures.add(String.format("p99 %.1fus per move, budget %dus", latencies.getPercentile(99) / 1000.0,
+                    maxP99Micros));
+
+        return failures;
+    }
+
+    /**
+     * Play every game of the corpus.
+     *
+     * @param measured Whether or not to record the cost of every move.
+     */
+    private void playCorpus(boolean measured) {
+        long threadId = Thread.currentThread().getId();
+        long overhead = measured ? counterOverhead(threadId) : 0;
+
+        BoardStyle style = new CircleStyle(null);
+
+        for (GameRecord record : corpus) {
+            Model model = new Model();
+            SowingAnimator animator = attachBoard(model, style);
+            GameState state = new GameState(record.getStonesPerPit());
+
+            for (int i = 0; i < GameState.PIT_COUNT; i++)
+                for (int j = 0; j < state.getStones(i); j++)
+                    model.addStone(Stone.get((i * 7 + j) % Stone.PALETTE_SIZE), i);
+
+            model.setFirstPlayerTurn(true);
+            model.setGameNotFinished();
+
+            for (int ply = 0; ply < record.getMoveCount(); ply++) {
+                int move = record.getMove(ply);
+
+                if (!state.isLegalMove(move))
+                    throw new IllegalStateException("Illegal move " + move + " at ply " + ply + " of a corpus game");
+
+                long before = measured ? allocatedBytes(threadId) : 0;
+                long start = System.nanoTime();
+                animator.beginMove(); //Like the board, which lands the flights of the previous move first
+                model.copyPosition(); //and keeps the position for a take back
+                model.playPit(move);
+                long nanos = System.nanoTime() - start;
+
+                if (measured) {
+                    long allocated = Math.max(allocatedBytes(threadId) - before - overhead, 0);
+                    latencies.record(nanos);
+                    moves++;
+                    bytes += allocated;
+                    maxBytes = Math.max(maxBytes, allocated);
+                }
+
+                state.play(move);
+                compare(model, state, ply);
+            }
+
+            animator.finish();
+        }
+    }
+
+    /**
+     * Attach a board that is never shown to a model: a view for every container, laid out side by side, and an
+     * animator on top of them.
+     *
+     * @param model The model.
+     * @param style The style the containers and stones take their shapes from.
+     * @return The animator of the board.
+     */
+    private static SowingAnimator attachBoard(Model model, BoardStyle style) {
+        JPanel board = new JPanel(null);
+        int x = 0;
+
+        for (int i = 0; i < GameState.PIT_COUNT; i++) {
+            StoneContainerView view = new StoneContainerView(model, null);
+            boolean mancala = i == GameState.PLAYER_ONE_MANCALA_INDEX || i == GameState.PLAYER_TWO_MANCALA_INDEX;
+            view.setIndex(i);
+            view.setContainer((mancala ? style.getMancalaStyle() : style.getPitStyle()).clone());
+            view.setBounds(x, 0, view.getPreferredSize().width, view.getPreferredSize().height);
+            x += view.getWidth();
+            board.add(view);
+            model.attach(view);
+        }
+
+        SowingAnimator animator = new SowingAnimator(model);
+        animator.setStyle(style);
+        animator.setBounds(0, 0, x, style.getMancalaStyle().getHeight());
+        board.add(animator, 0);
+        model.setAnimator(animator);
+        return animator;
+    }
+
+    /**
+     * @param threadId The id of the current thread.
+     * @return The bytes the current thread has allocated so far, or 0 if they cannot be counted.
+     */
+    private long allocatedBytes(long threadId) {
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(threadId);
+    }
+
+    /**
+     * @param threadId The id of the current thread.
+     * @return The fewest bytes that reading the allocation counter twice allocates by itself.
+     */
+    private long counterOverhead(long threadId) {
+        long overhead = Long.MAX_VALUE;
+
+        for (int i = 0; i < 100; i++) {
+            long before = allocatedBytes(threadId);
+            overhead = Math.min(overhead, allocatedBytes(threadId) - before);
+        }
+
+        return overhead;
+    }
+
+    /**
+     * Make sure the model shows the same position as the rules of the search engine.
+     *
+     * @param model The model.
+     * @param state The position after the same moves.
+     * @param ply The number of the last move played.
+     */
+    private static void compare(Model model, GameState state, int ply) {
+        for (int i = 0; i < GameState.PIT_COUNT; i++)
+            if (model.getModel(i).size() != state.getStones(i))
+                throw new IllegalStateException("Model and rules disagree about container " + i + " after ply " + ply);
+
+        if (model.isFirstPlayerTurn() != state.isFirstPlayerTurn() || model.isGameFinished() != state.isFinished())
+            throw new IllegalStateException("Model and rules disagree about the turn after ply " + ply);
+    }
+
+    /**
+     * Measure the move path and exit with status 1 if a budget is exceeded.
+     *
+     * @param args Optionally the number of random games, the budget of bytes per move, the budget of the 99th
+     *             percentile latency in microseconds or 0 to not check it, and a directory of saved games to add to
+     *             the corpus.
+     * @throws IOException If a saved game cannot be read.
+     * @throws InterruptedException If the thread is interrupted while the corpus is played.
+     * @throws InvocationTargetException If playing the corpus failed, like when the Model and the rules disagree.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException, InvocationTargetException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GAMES;
+        long maxBytesPerMove = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_BYTES_PER_MOVE;
+        long maxP99Micros = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_P99_MICROS;
+        java.util.List<GameRecord> corpus = randomCorpus(games, new Random(SEED));
+
+        if (args.length > 3) {
+            File[] files = new File(args[3]).listFiles();
+
+            if (files == null)
+                throw new FileNotFoundException(args[3]);
+
+            Arrays.sort(files);
+
+            for (File file : files)
+                if (file.isFile())
+                    corpus.add(GameRecord.load(file));
+        }
+
+        final MoveBudget budget = new MoveBudget(corpus);
+
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                budget.measure();
+            }
+        });
+
+        LatencyHistogram latencies = budget.getLatencies();
+
+        System.out.printf("%d games, %d moves: p50 %.1fus, p99 %.1fus, max %.1fus%n", corpus.size(),
+                budget.getMoves(), latencies.getPercentile(50) / 1000.0, latencies.getPercentile(99) / 1000.0,
+                latencies.getMax() / 1000.0);
+
+        if (budget.isMeasuringBytes())
+            System.out.printf("%.0f bytes per move, at most %d%n", budget.getBytesPerMove(), budget.getMaxBytes());
+        else
+            System.out.println("Allocated bytes cannot be counted on this JVM, only the latency is checked");
+
+        java.util.List<String> failures = budget.check(maxBytesPerMove, maxP99Micros);
+
+        for (String failure : failures)
+            System.out.println("Over budget: " + failure);
+
+        if (!failures.isEmpty())
+            System.exit(1);
+    }
+}
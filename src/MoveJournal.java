@@ -0,0 +1,389 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * An append-only journal of every game hosted by the server. Records are written into memory-mapped segment files,
+ * so an append is a plain memory write that survives the JVM exiting. The segments are forced to disk by a background
+ * flusher every few milliseconds, so many moves share a single disk sync instead of paying one each.
+ *
+ * Every record is 8 bytes: the game id, the record type, one value (the stones per pit or the pit that was played)
+ * and a check that tells a written record apart from the zero filled rest of a segment. A compacted segment starts
+ * with a HIGHEST record holding the highest game id ever created in its id, so the ids of finished games are never
+ * handed out again after a restart.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class MoveJournal {
+    public static final int SEGMENT_SIZE = 4 * 1024 * 1024;
+    public static final int RECORD_SIZE = 8;
+    public static final long FLUSH_INTERVAL_MILLIS = 10;
+    public static final byte CREATE = 1;
+    public static final byte MOVE = 2;
+    public static final byte END = 3;
+    public static final byte HIGHEST = 4;
+
+    private final File directory;
+    private final ScheduledExecutorService flusher;
+    private int segmentNumber;
+    private RandomAccessFile segmentFile;
+    private MappedByteBuffer segment;
+    private boolean dirty;
+    private int highestId;
+
+    /**
+     * A game rebuilt from the journal.
+     */
+    public static class Game {
+        private final int stonesPerPit;
+        private byte[] moves;
+        private int moveCount;
+
+        /**
+         * @param stonesPerPit The number of starting stones in every pit.
+         */
+        private Game(int stonesPerPit) {
+            this.stonesPerPit = stonesPerPit;
+            moves = new byte[64];
+            moveCount = 0;
+        }
+
+        /**
+         * @param pit The pit that was played.
+         */
+        private void addMove(byte pit) {
+            if (moveCount == moves.length)
+                moves = Arrays.copyOf(moves, moves.length * 2);
+
+            moves[moveCount++] = pit;
+        }
+
+        /**
+         * @return The number of starting stones in every pit.
+         */
+        public int getStonesPerPit() {
+            return stonesPerPit;
+        }
+
+        /**
+         * @return The number of moves played.
+         */
+        public int getMoveCount() {
+            return moveCount;
+        }
+
+        /**
+         * @param index The index of the move.
+         * @return The pit that was played.
+         */
+        public int getMove(int index) {
+            return moves[index];
+        }
+
+        /**
+         * @return The state reached after replaying every move. Moves journaled after the game was decided, before
+         *         decided games ended early (see GameState.isDecided), are ignored.
+         */
+        public GameState replay() {
+            GameState state = new GameState(stonesPerPit);
+
+            for (int i = 0; i < moveCount && !state.isFinished(); i++)
+                state.play(moves[i]);
+
+            return state;
+        }
+    }
+
+    /**
+     * Constructor that opens the journal in the given directory. The journal must be recovered before anything is
+     * appended to it.
+     *
+     * @param directory The directory holding the segment files.
+     * @throws IOException If the directory cannot be created.
+     */
+    public MoveJournal(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Could not create journal directory " + directory);
+
+        this.directory = directory;
+        flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        segmentNumber = -1;
+        dirty = false;
+        highestId = 0;
+    }
+
+    /**
+     * Rebuild every unfinished game from the segment files, then compact them into a fresh segment holding only those
+     * games and delete the old segments.
+     *
+     * The fresh segment is written under a temporary name and only renamed into place once it is on disk, so a crash
+     * in the middle of compacting leaves the old segments to recover from, never half of a compacted game behind them.
+     * It is made large enough for every recovered game, so compacting never spills into a second segment.
+     *
+     * @return The unfinished games by id, in the order they were created.
+     * @throws IOException If a segment cannot be read or written.
+     */
+    public synchronized LinkedHashMap<Integer, Game> recover() throws IOException {
+        LinkedHashMap<Integer, Game> games = new LinkedHashMap<Integer, Game>();
+        File[] oldSegments = listSegments();
+        long records = 1;
+
+        for (File file : directory.listFiles())
+            if (file.getName().endsWith(".tmp"))
+                file.delete(); //A compaction that did not finish
+
+        for (File file : oldSegments) {
+            segmentNumber = Math.max(segmentNumber, parseSegmentNumber(file));
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+
+            try {
+                ByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+
+                while (buffer.remaining() >= RECORD_SIZE) {
+                    int id = buffer.getInt();
+                    byte type = buffer.get();
+                    byte value = buffer.get();
+
+                    if (id == 0 || buffer.getShort() != check(id, type, value))
+                        break;
+
+                    highestId = Math.max(highestId, id);
+
+                    if (type == CREATE)
+                        games.put(id, new Game(value));
+                    else if (type == END)
+                        games.remove(id);
+                    else if (type == MOVE && games.containsKey(id))
+                        games.get(id).addMove(value);
+                }
+            } finally {
+                in.close();
+            }
+        }
+
+        for (Game game : games.values())
+            records += 1 + game.getMoveCount();
+
+        File compacted = segmentFile(segmentNumber + 1);
+        File temporary = new File(directory, compacted.getName() + ".tmp");
+        openSegment(segmentNumber + 1, temporary, Math.max(SEGMENT_SIZE, records * RECORD_SIZE));
+
+        if (highestId > 0)
+            append(highestId, HIGHEST, (byte) 0);
+
+        for (Map.Entry<Integer, Game> entry : games.entrySet()) {
+            Game game = entry.getValue();
+            append(entry.getKey(), CREATE, (byte) game.getStonesPerPit());
+
+            for (int i = 0; i < game.getMoveCount(); i++)
+                append(entry.getKey(), MOVE, (byte) game.getMove(i));
+        }
+
+        segment.force();
+        Files.move(temporary.toPath(), compacted.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+        for (File file : oldSegments)
+            file.delete();
+
+        flusher.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                flush();
+            }
+        }, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        return games;
+    }
+
+    /**
+     * @return The highest game id in the journal when it was recovered, including finished games, or 0 if there was
+     *         none.
+     */
+    public synchronized int getHighestId() {
+        return highestId;
+    }
+
+    /**
+     * Record a new game.
+     *
+     * @param id The id of the game.
+     * @param stonesPerPit The number of starting stones in every pit, from GameState.MIN_STONES_PER_PIT to
+     *                     GameState.MAX_STONES_PER_PIT.
+     */
+    public synchronized void create(int id, int stonesPerPit) {
+        if (stonesPerPit < GameState.MIN_STONES_PER_PIT || stonesPerPit > GameState.MAX_STONES_PER_PIT)
+            throw new IllegalArgumentException("Cannot journal " + stonesPerPit + " stones per pit");
+
+        append(id, CREATE, (byte) stonesPerPit);
+    }
+
+    /**
+     * Record a move.
+     *
+     * @param id The id of the game.
+     * @param pit The pit that was played.
+     */
+    public synchronized void move(int id, int pit) {
+        append(id, MOVE, (byte) pit);
+    }
+
+    /**
+     * Record that a game is finished. It will not be recovered anymore.
+     *
+     * @param id The id of the game.
+     */
+    public synchronized void end(int id) {
+        append(id, END, (byte) 0);
+    }
+
+    /**
+     * Force every appended record to disk and stop the flusher.
+     */
+    public synchronized void close() {
+        flusher.shutdown();
+
+        if (segment != null)
+            segment.force();
+
+        closeSegment();
+    }
+
+    /**
+     * Force the current segment to disk if anything was appended since the last flush. Appends are not held up while
+     * the disk syncs.
+     */
+    private void flush() {
+        MappedByteBuffer written;
+
+        synchronized (this) {
+            if (!dirty || segment == null)
+                return;
+
+            written = segment;
+            dirty = false;
+        }
+
+        written.force();
+    }
+
+    /**
+     * Append a record, moving on to a new segment when the current one is full.
+     *
+     * @param id The id of the game.
+     * @param type The type of the record.
+     * @param value The value of the record.
+     */
+    private void append(int id, byte type, byte value) {
+        try {
+            if (segment.remaining() < RECORD_SIZE) {
+                segment.force();
+                openSegment(segmentNumber + 1);
+            }
+
+            write(id, type, value);
+            dirty = true;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not append to the journal", ex);
+        }
+    }
+
+    /**
+     * @param id The id of the game.
+     * @param type The type of the record.
+     * @param value The value of the record.
+     */
+    private void write(int id, byte type, byte value) {
+        segment.putInt(id);
+        segment.put(type);
+        segment.put(value);
+        segment.putShort(check(id, type, value));
+    }
+
+    /**
+     * Close the current segment and map a new, empty one.
+     *
+     * @param number The number of the new segment.
+     * @throws IOException If the segment cannot be created.
+     */
+    private void openSegment(int number) throws IOException {
+        openSegment(number, segmentFile(number), SEGMENT_SIZE);
+    }
+
+    /**
+     * Close the current segment and map a new, empty one from the given file.
+     *
+     * @param number The number of the new segment.
+     * @param file The file of the new segment.
+     * @param size The size of the new segment in bytes.
+     * @throws IOException If the segment cannot be created.
+     */
+    private void openSegment(int number, File file, long size) throws IOException {
+        closeSegment();
+        segmentNumber = number;
+        segmentFile = new RandomAccessFile(file, "rw");
+        segmentFile.setLength(size);
+        segment = segmentFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * @param number The number of a segment.
+     * @return The file of the segment.
+     */
+    private File segmentFile(int number) {
+        return new File(directory, String.format("journal-%08d.log", number));
+    }
+
+    /**
+     * Close the file of the current segment. The mapping stays valid until it is garbage collected.
+     */
+    private void closeSegment() {
+        if (segmentFile != null) {
+            try {
+                segmentFile.close();
+            } catch (IOException ex) {}
+
+            segmentFile = null;
+        }
+    }
+
+    /**
+     * @return Every segment file, oldest first.
+     */
+    private File[] listSegments() {
+        File[] files = directory.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.matches("journal-\\d{8}\\.log");
+            }
+        });
+
+        Arrays.sort(files);
+        return files;
+    }
+
+    /**
+     * @param file A segment file.
+     * @return The number of the segment.
+     */
+    private static int parseSegmentNumber(File file) {
+        return Integer.parseInt(file.getName().substring(8, 16));
+    }
+
+    /**
+     * @param id The id of the game.
+     * @param type The type of the record.
+     * @param value The value of the record.
+     * @return The check stored with the record. It is never 0 for a record of a valid game.
+     */
+    private static short check(int id, byte type, byte value) {
+        int hash = (id * 31 + type) * 31 + value;
+        return (short) ((hash ^ (hash >>> 16)) | 1);
+    }
+}
@@ -0,0 +1,277 @@
+import java.io.*;
+
+/**
+ * A strategy that scores positions with a small quantized neural network. Every container contributes one input:
+ * its stone count, seen from one of the two players. The first layer sums one weight column per input into an
+ * accumulator for each player. Since a move only changes the containers it sowed into, the engine's accumulators
+ * are updated per changed container instead of being summed from scratch at every position.
+ *
+ * The accumulator of the player to move and the one of its opponent go through a clipped ReLU and are weighed by the
+ * output layer. All weights are 16 bit integers; the inner loops are plain counted loops over short arrays so the JIT
+ * can vectorize them.
+ *
+ * The weights file holds, as big-endian integers: the magic number, the number of hidden units, the number of stone
+ * count buckets, the output shift and the output bias, followed by the input weights (one column of hidden units per
+ * input), the hidden biases and the output weights, all as shorts.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class NetworkEvaluator extends Evaluator {
+    public static final int MAGIC = 0x4D4E4E31; //"MNN1"
+    public static final int CLIP = 127;
+    public static final String DEFAULT_FILE = "mancala.nnue";
+
+    private final int hidden;
+    private final int buckets;
+    private final int outputShift;
+    private final int outputBias;
+    private final short[] inputWeights;
+    private final short[] hiddenBiases;
+    private final short[] outputWeights;
+    private final short[] accumulators;
+    private final short[] scratch;
+
+    /**
+     * Constructor that initializes all private attributes to the given weights.
+     *
+     * @param hidden The number of hidden units.
+     * @param buckets The number of stone count buckets. Larger counts share the last bucket.
+     * @param outputShift The output sum is shifted right by this many bits.
+     * @param outputBias The bias of the output.
+     * @param inputWeights The input weights, hidden units of an input next to each other.
+     * @param hiddenBiases The bias of every hidden unit.
+     * @param outputWeights The output weights of the mover's units followed by those of the opponent's units.
+     */
+    public NetworkEvaluator(int hidden, int buckets, int outputShift, int outputBias, short[] inputWeights,
+            short[] hiddenBiases, short[] outputWeights) {
+        if (inputWeights.length != GameState.PIT_COUNT * buckets * hidden || hiddenBiases.length != hidden ||
+                outputWeights.length != hidden * 2)
+            throw new IllegalArgumentException("Weights do not match " + hidden + " hidden units");
+
+        this.hidden = hidden;
+        this.buckets = buckets;
+        this.outputShift = outputShift;
+        this.outputBias = outputBias;
+        this.inputWeights = inputWeights;
+        this.hiddenBiases = hiddenBiases;
+        this.outputWeights = outputWeights;
+        accumulators = new short[(SearchEngine.MAX_DEPTH + 1) * 2 * hidden];
+        scratch = new short[2 * hidden];
+    }
+
+    /**
+     * Read the weights from a file.
+     *
+     * @param file The weights file.
+     * @return A network using those weights.
+     * @throws IOException If the file cannot be read or is not a weights file.
+     */
+    public static NetworkEvaluator load(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        try {
+            if (in.readInt() != MAGIC)
+                throw new IOException(file + " is not a weights file");
+
+            int hidden = in.readInt();
+            int buckets = in.readInt();
+            int outputShift = in.readInt();
+            int outputBias = in.readInt();
+            short[] inputWeights = readShorts(in, GameState.PIT_COUNT * buckets * hidden);
+            short[] hiddenBiases = readShorts(in, hidden);
+            short[] outputWeights = readShorts(in, hidden * 2);
+            return new NetworkEvaluator(hidden, buckets, outputShift, outputBias, inputWeights, hiddenBiases,
+                    outputWeights);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Write the weights to a file.
+     *
+     * @param file The weights file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(hidden);
+            out.writeInt(buckets);
+            out.writeInt(outputShift);
+            out.writeInt(outputBias);
+            writeShorts(out, inputWeights);
+            writeShorts(out, hiddenBiases);
+            writeShorts(out, outputWeights);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Build a network that scores exactly like StoreDifferenceEvaluator: one hidden unit counts the mover's mancala,
+     * another the opponent's. It is the starting point for training.
+     *
+     * @param hidden The number of hidden units, at least 2.
+     * @param buckets The number of stone count buckets, at most CLIP + 1.
+     * @return The network.
+     */
+    public static NetworkEvaluator createStoreDifference(int hidden, int buckets) {
+        short[] inputWeights = new short[GameState.PIT_COUNT * buckets * hidden];
+        short[] outputWeights = new short[hidden * 2];
+
+        for (int count = 0; count < buckets; count++) {
+            inputWeights[(GameState.PLAYER_ONE_MANCALA_INDEX * buckets + count) * hidden] = (short) count;
+            inputWeights[(GameState.PLAYER_TWO_MANCALA_INDEX * buckets + count) * hidden + 1] = (short) count;
+        }
+
+        outputWeights[0] = STONE;
+        outputWeights[1] = -STONE;
+        return new NetworkEvaluator(hidden, buckets, 0, 0, inputWeights, new short[hidden], outputWeights);
+    }
+
+    /**
+     * @param state The position to score.
+     * @return The score from the point of view of the player to move, in hundredths of a stone.
+     */
+    public int evaluate(GameState state) {
+        refresh(state, scratch, 0);
+        return output(scratch, 0, state.isFirstPlayerTurn());
+    }
+
+    /**
+     * @param ply The distance of the position from the root.
+     * @param state The position to score.
+     * @return The score from the point of view of the player to move, in hundredths of a stone.
+     */
+    public int evaluate(int ply, GameState state) {
+        return output(accumulators, ply * 2 * hidden, state.isFirstPlayerTurn());
+    }
+
+    /**
+     * Sum the accumulators of the root from scratch.
+     *
+     * @param root The position at ply 0.
+     */
+    public void setRoot(GameState root) {
+        refresh(root, accumulators, 0);
+    }
+
+    /**
+     * Update the accumulators of the child for every container the move changed.
+     *
+     * @param ply The distance of the parent from the root.
+     * @param parent The position before the move.
+     * @param child The position after the move, at ply + 1.
+     */
+    public void play(int ply, GameState parent, GameState child) {
+        int from = ply * 2 * hidden;
+        int to = from + 2 * hidden;
+        System.arraycopy(accumulators, from, accumulators, to, 2 * hidden);
+
+        for (int i = 0; i < GameState.PIT_COUNT; i++) {
+            int before = Math.min(parent.getStones(i), buckets - 1);
+            int after = Math.min(child.getStones(i), buckets - 1);
+
+            if (before != after) {
+                update(to, feature(i, before, 0), feature(i, after, 0));
+                update(to + hidden, feature(i, before, 1), feature(i, after, 1));
+            }
+        }
+    }
+
+    /**
+     * Replace one input of an accumulator with another.
+     *
+     * @param offset The offset of the accumulator.
+     * @param removed The input that is no longer active.
+     * @param added The input that became active.
+     */
+    private void update(int offset, int removed, int added) {
+        int removedColumn = removed * hidden;
+        int addedColumn = added * hidden;
+
+        for (int h = 0; h < hidden; h++)
+            accumulators[offset + h] += inputWeights[addedColumn + h] - inputWeights[removedColumn + h];
+    }
+
+    /**
+     * Sum both accumulators of a position from scratch.
+     *
+     * @param state The position.
+     * @param target The array holding the accumulators.
+     * @param offset The offset of the first player's accumulator, the second player's follows.
+     */
+    private void refresh(GameState state, short[] target, int offset) {
+        System.arraycopy(hiddenBiases, 0, target, offset, hidden);
+        System.arraycopy(hiddenBiases, 0, target, offset + hidden, hidden);
+
+        for (int i = 0; i < GameState.PIT_COUNT; i++) {
+            int count = Math.min(state.getStones(i), buckets - 1);
+
+            for (int player = 0; player < 2; player++) {
+                int column = feature(i, count, player) * hidden;
+                int start = offset + player * hidden;
+
+                for (int h = 0; h < hidden; h++)
+                    target[start + h] += inputWeights[column + h];
+            }
+        }
+    }
+
+    /**
+     * @param source The array holding the accumulators.
+     * @param offset The offset of the first player's accumulator, the second player's follows.
+     * @param firstPlayerTurn Whether or not the first player is to move.
+     * @return The output of the network.
+     */
+    private int output(short[] source, int offset, boolean firstPlayerTurn) {
+        int mover = offset + (firstPlayerTurn ? 0 : hidden);
+        int opponent = offset + (firstPlayerTurn ? hidden : 0);
+        int sum = 0;
+
+        for (int h = 0; h < hidden; h++)
+            sum += Math.min(Math.max(source[mover + h], 0), CLIP) * outputWeights[h] +
+                    Math.min(Math.max(source[opponent + h], 0), CLIP) * outputWeights[hidden + h];
+
+        return (sum >> outputShift) + outputBias;
+    }
+
+    /**
+     * @param index The index of the container.
+     * @param bucket The stone count bucket of the container.
+     * @param player 0 to see the board as the first player, 1 as the second player.
+     * @return The input that is active for the container.
+     */
+    private int feature(int index, int bucket, int player) {
+        int relative = player == 0 ? index : (index + GameState.PITS_PER_PLAYER + 1) % GameState.PIT_COUNT;
+        return relative * buckets + bucket;
+    }
+
+    /**
+     * @param in The stream to read from.
+     * @param count The number of shorts.
+     * @return The shorts.
+     * @throws IOException If the stream ends early.
+     */
+    private static short[] readShorts(DataInputStream in, int count) throws IOException {
+        short[] values = new short[count];
+
+        for (int i = 0; i < count; i++)
+            values[i] = in.readShort();
+
+        return values;
+    }
+
+    /**
+     * @param out The stream to write to.
+     * @param values The shorts.
+     * @throws IOException If the stream cannot be written.
+     */
+    private static void writeShorts(DataOutputStream out, short[] values) throws IOException {
+        for (short value : values)
+            out.writeShort(value);
+    }
+}
@@ -0,0 +1,239 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A set of positions labelled with the outcome of the game they were played in. Everything is kept in primitive
+ * arrays: the stone counts of all positions packed into one byte array, plus one byte for the player to move and one
+ * for the result, so tens of millions of positions fit in memory without an object per position.
+ *
+ * The file format is the magic number and the position count, followed by 16 bytes per position: the stone counts,
+ * 1 if the first player is to move, and the result for the player to move (0 lost, 1 tie, 2 won).
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class PositionDataset {
+    public static final int MAGIC = 0x4D504F53; //"MPOS"
+    public static final int RECORD_SIZE = GameState.PIT_COUNT + 2;
+    public static final int LOST = 0;
+    public static final int TIE = 1;
+    public static final int WON = 2;
+
+    private byte[] pits;
+    private byte[] firstPlayerTurn;
+    private byte[] results;
+    private int size;
+
+    /**
+     * Constructor that creates an empty dataset.
+     *
+     * @param capacity The number of positions to make room for.
+     */
+    public PositionDataset(int capacity) {
+        pits = new byte[Math.max(capacity, 16) * GameState.PIT_COUNT];
+        firstPlayerTurn = new byte[Math.max(capacity, 16)];
+        results = new byte[Math.max(capacity, 16)];
+        size = 0;
+    }
+
+    /**
+     * Add a position.
+     *
+     * @param state The position.
+     * @param result The result for the player to move: LOST, TIE or WON.
+     */
+    public void add(GameState state, int result) {
+        if (size == results.length)
+            grow();
+
+        state.copyPits(pits, size * GameState.PIT_COUNT);
+        firstPlayerTurn[size] = (byte) (state.isFirstPlayerTurn() ? 1 : 0);
+        results[size] = (byte) result;
+        size++;
+    }
+
+    /**
+     * Add every position of another dataset.
+     *
+     * @param other The dataset to add.
+     */
+    public void addAll(PositionDataset other) {
+        for (int i = 0; i < other.size; i++) {
+            if (size == results.length)
+                grow();
+
+            System.arraycopy(other.pits, i * GameState.PIT_COUNT, pits, size * GameState.PIT_COUNT, GameState.PIT_COUNT);
+            firstPlayerTurn[size] = other.firstPlayerTurn[i];
+            results[size] = other.results[i];
+            size++;
+        }
+    }
+
+    /**
+     * Double the room for positions.
+     */
+    private void grow() {
+        pits = Arrays.copyOf(pits, pits.length * 2);
+        firstPlayerTurn = Arrays.copyOf(firstPlayerTurn, firstPlayerTurn.length * 2);
+        results = Arrays.copyOf(results, results.length * 2);
+    }
+
+    /**
+     * @return The number of positions.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The packed stone counts. Position i starts at i * GameState.PIT_COUNT.
+     */
+    public byte[] getPits() {
+        return pits;
+    }
+
+    /**
+     * @param index The index of the position.
+     * @return True if the first player is to move. False otherwise.
+     */
+    public boolean isFirstPlayerTurn(int index) {
+        return firstPlayerTurn[index] != 0;
+    }
+
+    /**
+     * @param index The index of the position.
+     * @return The result for the player to move: LOST, TIE or WON.
+     */
+    public int getResult(int index) {
+        return results[index];
+    }
+
+    /**
+     * Read a dataset from a file.
+     *
+     * @param file The dataset file.
+     * @return The dataset.
+     * @throws IOException If the file cannot be read or is not a dataset file.
+     */
+    public static PositionDataset load(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+
+        try {
+            ByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+
+            if (buffer.getInt() != MAGIC)
+                throw new IOException(file + " is not a dataset file");
+
+            int count = buffer.getInt();
+            PositionDataset dataset = new PositionDataset(count);
+
+            for (int i = 0; i < count; i++) {
+                buffer.get(dataset.pits, i * GameState.PIT_COUNT, GameState.PIT_COUNT);
+                dataset.firstPlayerTurn[i] = buffer.get();
+                dataset.results[i] = buffer.get();
+            }
+
+            dataset.size = count;
+            return dataset;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Write the dataset to a file.
+     *
+     * @param file The dataset file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(size);
+
+            for (int i = 0; i < size; i++) {
+                out.write(pits, i * GameState.PIT_COUNT, GameState.PIT_COUNT);
+                out.writeByte(firstPlayerTurn[i]);
+                out.writeByte(results[i]);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Generate a dataset by self-play on every core. Every game starts with a few random moves so the games differ,
+     * then both players search to a fixed depth. Every position of a game is labelled with its final result.
+     *
+     * @param games The number of games to play.
+     * @param depth The search depth of both players.
+     * @param randomMoves The number of random moves at the start of every game.
+     * @param seed The seed of the random moves.
+     * @return The dataset.
+     * @throws InterruptedException If the generation is interrupted.
+     */
+    public static PositionDataset generate(int games, final int depth, final int randomMoves, long seed)
+            throws InterruptedException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<PositionDataset>> parts = new ArrayList<Future<PositionDataset>>();
+
+        for (int t = 0; t < threads; t++) {
+            final int count = games / threads + (t < games % threads ? 1 : 0);
+            final Random rand = new Random(seed + t);
+
+            parts.add(pool.submit(new Callable<PositionDataset>() {
+                public PositionDataset call() {
+                    SearchEngine engine = new SearchEngine(16);
+                    PositionDataset part = new PositionDataset(count * 64);
+                    ArrayList<GameState> positions = new ArrayList<GameState>();
+
+                    for (int g = 0; g < count; g++) {
+                        GameState state = new GameState(4);
+                        positions.clear();
+
+                        for (int ply = 0; !state.isFinished(); ply++) {
+                            positions.add(state.clone());
+                            int move;
+
+                            if (ply < randomMoves)
+                                do {
+                                    move = rand.nextInt(GameState.PIT_COUNT);
+                                } while (!state.isLegalMove(move));
+                            else
+                                move = engine.search(state, depth, 0, null).getBestMove();
+
+                            state.play(move);
+                        }
+
+                        int difference = state.getStoreDifference();
+
+                        for (GameState position : positions) {
+                            int result = difference == 0 ? TIE : (difference > 0) == position.isFirstPlayerTurn() ? WON : LOST;
+                            part.add(position, result);
+                        }
+                    }
+
+                    return part;
+                }
+            }));
+        }
+
+        PositionDataset dataset = new PositionDataset(games * 64);
+
+        try {
+            for (Future<PositionDataset> part : parts)
+                dataset.addAll(part.get());
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        return dataset;
+    }
+}
@@ -0,0 +1,308 @@
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * A depth-first proof-number (df-pn) solver that proves whether a player wins a position. Alpha-beta has to search
+ * every line to the same depth, while proof-number search follows whichever line is cheapest to prove or disprove,
+ * which suits the long forced chains of extra turns that decide most endgames.
+ *
+ * Every position has a proof number, the least number of positions that still have to be proven to prove it, and a
+ * disproof number. At the attacker's positions the proof number is the smallest of the children and the disproof
+ * number their sum, at the defender's positions the other way around. Since an extra turn keeps the same player to
+ * move, whose position it is follows the player to move rather than the distance from the root.
+ *
+ * The numbers are kept in a node table of two longs per slot, the key and both numbers packed together, which
+ * survives between searches so repeated queries about the same game start warm. It is keyed by the canonical hash,
+ * so a position and its side-swapped twin share one entry. One solver must only be used by one thread at a time.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class ProofNumberSearch {
+    public static final int INFINITY = Integer.MAX_VALUE / 2;
+    public static final int MAX_PLY = 512;
+    public static final int DEFAULT_TABLE_BITS = 20;
+
+    private static final long DEFENDER_KEY = 0x9E3779B97F4A7C15L;
+    private static final int CHECK_INTERVAL = 1023;
+
+    private final long[] keys;
+    private final long[] numbers;
+    private final int mask;
+    private final ArrayList<GameState[]> children;
+    private final ArrayList<long[]> childKeys;
+    private boolean attackerFirst;
+    private AtomicBoolean stop;
+    private long maxNodes;
+    private long nodes;
+    private boolean aborted;
+
+    /**
+     * Constructor that uses a table of the default size.
+     */
+    public ProofNumberSearch() {
+        this(DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * Constructor that initializes all private attributes.
+     *
+     * @param tableBits The node table holds 2^tableBits positions.
+     */
+    public ProofNumberSearch(int tableBits) {
+        keys = new long[1 << tableBits];
+        numbers = new long[1 << tableBits];
+        mask = (1 << tableBits) - 1;
+        children = new ArrayList<GameState[]>();
+        childKeys = new ArrayList<long[]>();
+    }
+
+    /**
+     * Try to prove that a player wins the position of a board.
+     *
+     * @param model The model of the board. It is not changed.
+     * @param firstPlayer True to prove a win of the first player, false for the second player.
+     * @param maxNodes The number of positions to expand before giving up.
+     * @return The outcome of the proof.
+     */
+    public ProofResult solve(Model model, boolean firstPlayer, long maxNodes) {
+        return solve(model.toGameState(), firstPlayer, maxNodes, null);
+    }
+
+    /**
+     * Try to prove that a player wins a position, that is ends the game with more stones than the opponent. Asking
+     * whether the opponent wins tells whether the position is lost.
+     *
+     * @param root The position to prove. It is not changed.
+     * @param firstPlayer True to prove a win of the first player, false for the second player.
+     * @param maxNodes The number of positions to expand before giving up.
+     * @param stop A flag that stops the search as soon as it is set, or null.
+     * @return The outcome of the proof.
+     */
+    public ProofResult solve(GameState root, boolean firstPlayer, long maxNodes, AtomicBoolean stop) {
+        long start = System.nanoTime();
+        attackerFirst = firstPlayer;
+        this.stop = stop == null ? new AtomicBoolean(false) : stop;
+        this.maxNodes = maxNodes;
+        nodes = 0;
+        aborted = false;
+
+        GameState state = root.clone();
+        long key = key(state);
+
+        if (!state.isFinished())
+            search(state, key, 0, INFINITY, INFINITY);
+
+        long entry = lookup(state, key);
+        int status = ProofResult.UNKNOWN;
+
+        if (proofOf(entry) == 0)
+            status = ProofResult.PROVEN;
+        else if (disproofOf(entry) == 0)
+            status = ProofResult.DISPROVEN;
+
+        return new ProofResult(status, decidingMove(state, status), nodes, (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * Forget every proven position.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(numbers, 0);
+    }
+
+    /**
+     * Expand a position until its proof number reaches one threshold or its disproof number the other.
+     *
+     * @param state The position.
+     * @param key The table key of the position.
+     * @param ply The distance from the root.
+     * @param proofThreshold The proof number to stop at.
+     * @param disproofThreshold The disproof number to stop at.
+     */
+    private void search(GameState state, long key, int ply, int proofThreshold, int disproofThreshold) {
+        if ((++nodes & CHECK_INTERVAL) == 0 && stop.get() || nodes > maxNodes || ply == MAX_PLY)
+            aborted = true;
+
+        if (aborted)
+            return;
+
+        if (children.size() == ply) {
+            GameState[] level = new GameState[GameState.PITS_PER_PLAYER];
+
+            for (int i = 0; i < level.length; i++)
+                level[i] = new GameState(0);
+
+            children.add(level);
+            childKeys.add(new long[GameState.PITS_PER_PLAYER]);
+        }
+
+        GameState[] level = children.get(ply);
+        long[] levelKeys = childKeys.get(ply);
+        boolean attacker = state.isFirstPlayerTurn() == attackerFirst;
+        int count = 0;
+
+        for (int i = 0; i < GameState.PIT_COUNT; i++) {
+            if (state.isLegalMove(i)) {
+                level[count].copyFrom(state);
+                level[count].play(i);
+                levelKeys[count] = key(level[count]);
+                count++;
+            }
+        }
+
+        while (true) {
+            int proof = attacker ? INFINITY : 0;
+            int disproof = attacker ? 0 : INFINITY;
+            int best = -1;
+            int bestNumber = INFINITY;
+            int secondNumber = INFINITY;
+
+            for (int i = 0; i < count; i++) {
+                long entry = lookup(level[i], levelKeys[i]);
+                int childProof = proofOf(entry);
+                int childDisproof = disproofOf(entry);
+                int number = attacker ? childProof : childDisproof;
+
+                if (attacker) {
+                    proof = Math.min(proof, childProof);
+                    disproof = saturate((long) disproof + childDisproof);
+                } else {
+                    proof = saturate((long) proof + childProof);
+                    disproof = Math.min(disproof, childDisproof);
+                }
+
+                if (best < 0 || number < bestNumber) {
+                    secondNumber = bestNumber;
+                    bestNumber = number;
+                    best = i;
+                } else if (number < secondNumber)
+                    secondNumber = number;
+            }
+
+            store(key, proof, disproof);
+
+            if (proof >= proofThreshold || disproof >= disproofThreshold || aborted)
+                return;
+
+            long entry = lookup(level[best], levelKeys[best]);
+            GameState child = level[best]; //Deeper plies only write to their own level
+
+            if (attacker)
+                search(child, levelKeys[best], ply + 1, Math.min(proofThreshold, saturate((long) secondNumber + 1)),
+                        saturate((long) disproofThreshold - disproof + disproofOf(entry)));
+            else
+                search(child, levelKeys[best], ply + 1, saturate((long) proofThreshold - proof + proofOf(entry)),
+                        Math.min(disproofThreshold, saturate((long) secondNumber + 1)));
+        }
+    }
+
+    /**
+     * @param state The position to prove.
+     * @param status The outcome of the proof.
+     * @return The move of the player to move that keeps the proven outcome, or -1.
+     */
+    private int decidingMove(GameState state, int status) {
+        boolean attacker = state.isFirstPlayerTurn() == attackerFirst;
+
+        if (state.isFinished() || attacker != (status == ProofResult.PROVEN) || status == ProofResult.UNKNOWN)
+            return -1;
+
+        GameState child = new GameState(0);
+
+        for (int i = 0; i < GameState.PIT_COUNT; i++) {
+            if (state.isLegalMove(i)) {
+                child.copyFrom(state);
+                child.play(i);
+                long entry = lookup(child, key(child));
+
+                if ((attacker ? proofOf(entry) : disproofOf(entry)) == 0)
+                    return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param state A position.
+     * @param key The table key of the position.
+     * @return The packed numbers of the position: exact for a finished game, from the table for an expanded position,
+     *         otherwise estimated from the number of legal moves.
+     */
+    private long lookup(GameState state, long key) {
+        if (state.isFinished()) {
+            int difference = attackerFirst ? state.getStoreDifference() : -state.getStoreDifference();
+            return difference > 0 ? pack(0, INFINITY) : pack(INFINITY, 0);
+        }
+
+        int slot = (int) key & mask;
+
+        if (keys[slot] == key)
+            return numbers[slot];
+
+        int moves = 0;
+
+        for (int i = 0; i < GameState.PIT_COUNT; i++)
+            if (state.isLegalMove(i))
+                moves++;
+
+        return state.isFirstPlayerTurn() == attackerFirst ? pack(1, moves) : pack(moves, 1);
+    }
+
+    /**
+     * Store the numbers of a position, replacing whatever shared its slot.
+     *
+     * @param key The table key of the position.
+     * @param proof The proof number.
+     * @param disproof The disproof number.
+     */
+    private void store(long key, int proof, int disproof) {
+        int slot = (int) key & mask;
+        keys[slot] = key;
+        numbers[slot] = pack(proof, disproof);
+    }
+
+    /**
+     * @param state A position.
+     * @return The table key of the position: its canonical hash, told apart by whether the player to move is the
+     *         attacker. Proofs for either player share entries, as a win of the mover is the same proof for both.
+     */
+    private long key(GameState state) {
+        long hash = state.canonicalHash();
+        return state.isFirstPlayerTurn() == attackerFirst ? hash : hash ^ DEFENDER_KEY;
+    }
+
+    /**
+     * @param value A proof or disproof number that may have grown past the int range.
+     * @return The number, capped at INFINITY.
+     */
+    private static int saturate(long value) {
+        return (int) Math.max(0, Math.min(value, INFINITY));
+    }
+
+    /**
+     * @param proof The proof number.
+     * @param disproof The disproof number.
+     * @return Both numbers packed into a long.
+     */
+    private static long pack(int proof, int disproof) {
+        return (long) proof << 32 | disproof & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @param entry Packed numbers.
+     * @return The proof number.
+     */
+    private static int proofOf(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    /**
+     * @param entry Packed numbers.
+     * @return The disproof number.
+     */
+    private static int disproofOf(long entry) {
+        return (int) entry;
+    }
+}
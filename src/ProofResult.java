@@ -0,0 +1,73 @@
+/**
+ * The outcome of a proof-number search: whether the player was proven to win and the move that decides it.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class ProofResult {
+    public static final int PROVEN = 1;
+    public static final int DISPROVEN = 2;
+    public static final int UNKNOWN = 3;
+
+    private final int status;
+    private final int move;
+    private final long nodes;
+    private final long elapsedMillis;
+
+    /**
+     * Constructor that initializes all private attributes to the given parameters.
+     *
+     * @param status PROVEN if the player wins, DISPROVEN if the player cannot win, UNKNOWN if the search ran out.
+     * @param move The move that decides the status for the player to move, or -1.
+     * @param nodes The number of positions expanded.
+     * @param elapsedMillis The time spent searching.
+     */
+    public ProofResult(int status, int move, long nodes, long elapsedMillis) {
+        this.status = status;
+        this.move = move;
+        this.nodes = nodes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return PROVEN if the player wins, DISPROVEN if the player cannot win, UNKNOWN if the search ran out.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return True if the player was proven to win. False otherwise.
+     */
+    public boolean isProven() {
+        return status == PROVEN;
+    }
+
+    /**
+     * @return True if the player was proven not to win. False otherwise.
+     */
+    public boolean isDisproven() {
+        return status == DISPROVEN;
+    }
+
+    /**
+     * @return The winning move if the player is to move and wins, the refutation if the opponent is to move and the
+     *         player cannot win, or -1 otherwise.
+     */
+    public int getMove() {
+        return move;
+    }
+
+    /**
+     * @return The number of positions expanded.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return The time spent searching.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * The client side copy of a game hosted by the game server. The server only sends the moves that are played, so the
+ * board is rebuilt locally with the same rules as the server. This mirrors how Model notifies its attached views,
+ * just across a process boundary.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class RemoteBoard {
+    private final int id;
+    private GameState state;
+    private int seq;
+
+    /**
+     * Constructor that initializes all private attributes. The board stays out of sync until the first snapshot
+     * arrives, moves received before that are ignored.
+     *
+     * @param id The id of the game.
+     */
+    public RemoteBoard(int id) {
+        this.id = id;
+        state = null;
+        seq = -1;
+    }
+
+    /**
+     * Apply a line sent by the server.
+     *
+     * @param line A STATE or MOVED line of this game.
+     * @return True if a move was missed and a snapshot must be requested with SYNC. False otherwise.
+     */
+    public boolean apply(String line) {
+        String[] tokens = line.split(" ");
+
+        if (Integer.parseInt(tokens[1]) != id)
+            throw new IllegalArgumentException("Line of another game: " + line);
+
+        if (tokens[0].equals(GameProtocol.STATE)) {
+            seq = Integer.parseInt(tokens[2]);
+            state = GameProtocol.parseState(tokens, 3);
+            return false;
+        }
+
+        if (!tokens[0].equals(GameProtocol.MOVED))
+            throw new IllegalArgumentException("Not a game update: " + line);
+
+        int moveSeq = Integer.parseInt(tokens[2]);
+
+        if (state == null)
+            return false;
+
+        if (moveSeq > seq + 1) {
+            state = null;
+            return true;
+        }
+
+        if (moveSeq == seq + 1) {
+            state.play(Integer.parseInt(tokens[3]));
+            seq = moveSeq;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return True if the board is in sync with the server. False otherwise.
+     */
+    public boolean isSynchronized() {
+        return state != null;
+    }
+
+    /**
+     * @return The id of the game.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return The number of moves applied to the board.
+     */
+    public int getSeq() {
+        return seq;
+    }
+
+    /**
+     * @return The local copy of the game, or null if it is out of sync.
+     */
+    public GameState getState() {
+        return state;
+    }
+}
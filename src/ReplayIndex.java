@@ -0,0 +1,83 @@
+/**
+ * Random access to every position of a recorded game. The game is replayed once and every KEYFRAME_INTERVAL plies a
+ * snapshot of the stone counts is kept, so seeking to any ply copies the nearest earlier snapshot and replays at most
+ * KEYFRAME_INTERVAL - 1 moves, however long the game is. Seeking forward by a few plies continues from the last
+ * position instead, which makes dragging a slider cheaper still.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class ReplayIndex {
+    public static final int KEYFRAME_INTERVAL = 8;
+
+    private final GameRecord record;
+    private final byte[] keyframes;
+    private final boolean[] keyframeTurns;
+    private final boolean[] keyframeFinished;
+    private final GameState cursor;
+    private int cursorPly;
+
+    /**
+     * Constructor that replays the game once to take the snapshots.
+     *
+     * @param record The game. Later changes to it are not seen.
+     */
+    public ReplayIndex(GameRecord record) {
+        this.record = record.copy();
+        int count = record.getMoveCount() / KEYFRAME_INTERVAL + 1;
+        keyframes = new byte[count * GameState.PIT_COUNT];
+        keyframeTurns = new boolean[count];
+        keyframeFinished = new boolean[count];
+        cursor = new GameState(record.getStonesPerPit());
+
+        for (int ply = 0; ply <= record.getMoveCount(); ply++) {
+            if (ply % KEYFRAME_INTERVAL == 0) {
+                int keyframe = ply / KEYFRAME_INTERVAL;
+                cursor.copyPits(keyframes, keyframe * GameState.PIT_COUNT);
+                keyframeTurns[keyframe] = cursor.isFirstPlayerTurn();
+                keyframeFinished[keyframe] = cursor.isFinished();
+            }
+
+            if (ply < record.getMoveCount())
+                cursor.play(record.getMove(ply));
+        }
+
+        cursorPly = record.getMoveCount();
+    }
+
+    /**
+     * Move to a ply of the game.
+     *
+     * @param ply The number of moves played, from 0 to getPlyCount().
+     * @return The position after that many moves. It is reused by the next seek, so copy it to keep it.
+     */
+    public GameState seek(int ply) {
+        if (ply < 0 || ply > record.getMoveCount())
+            throw new IllegalArgumentException("No ply " + ply + " in a game of " + record.getMoveCount());
+
+        if (ply < cursorPly || ply - cursorPly >= KEYFRAME_INTERVAL) {
+            int keyframe = ply / KEYFRAME_INTERVAL;
+            cursor.copyFrom(keyframes, keyframe * GameState.PIT_COUNT, keyframeTurns[keyframe],
+                    keyframeFinished[keyframe]);
+            cursorPly = keyframe * KEYFRAME_INTERVAL;
+        }
+
+        while (cursorPly < ply)
+            cursor.play(record.getMove(cursorPly++));
+
+        return cursor;
+    }
+
+    /**
+     * @return The number of moves of the game.
+     */
+    public int getPlyCount() {
+        return record.getMoveCount();
+    }
+
+    /**
+     * @return The game being replayed.
+     */
+    public GameRecord getRecord() {
+        return record;
+    }
+}
@@ -0,0 +1,314 @@
+import java.util.concurrent.atomic.*;
+
+/**
+ * An iterative deepening alpha-beta search over GameState. A move that earns another turn keeps the same player to
+ * move, so the score is only negated when the turn actually passes. Searched positions are kept in a transposition
+ * table that survives between searches, so a search of a position close to an earlier one starts warm. The table is
+ * keyed by the canonical hash with moves stored relative to the player to move, so a position and its side-swapped
+ * twin share one entry.
+ *
+ * One engine must only be used by one thread at a time.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class SearchEngine {
+    public static final int MAX_DEPTH = 64;
+    public static final int WIN_SCORE = 1000000;
+    public static final int INFINITY = 10000000;
+    public static final int DEFAULT_TABLE_BITS = 20;
+
+    private static final int CHECK_INTERVAL = 1023;
+
+    private final TranspositionTable table;
+    private final GameState[] stack;
+    private Evaluator evaluator;
+    private AtomicBoolean stop;
+    private long deadline;
+    private long maxNodes;
+    private long nodes;
+    private boolean aborted;
+    private int rootBestMove;
+    private SearchListener listener;
+
+    /**
+     * Constructor that uses a table of the default size and scores positions by their store difference.
+     */
+    public SearchEngine() {
+        this(DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * Constructor that initializes all private attributes.
+     *
+     * @param tableBits The transposition table holds 2^tableBits positions.
+     */
+    public SearchEngine(int tableBits) {
+        table = new TranspositionTable(tableBits);
+        stack = new GameState[MAX_DEPTH + 1];
+        evaluator = new StoreDifferenceEvaluator();
+
+        for (int i = 0; i < stack.length; i++)
+            stack[i] = new GameState(0);
+    }
+
+    /**
+     * Search a position until the depth is reached, the time is up or the search is stopped. Only completed
+     * iterations count, so the result of an interrupted search is the result of the previous depth.
+     *
+     * @param root The position to search. It is not changed.
+     * @param maxDepth The deepest iteration to search.
+     * @param timeMillis The time to search for, or 0 to search without a time limit.
+     * @param stop A flag that stops the search as soon as it is set, or null.
+     * @return The best move found.
+     */
+    public SearchResult search(GameState root, int maxDepth, long timeMillis, AtomicBoolean stop) {
+        return search(root, maxDepth, timeMillis, 0, stop);
+    }
+
+    /**
+     * Search a position until the depth is reached, the time is up, the node budget is spent or the search is
+     * stopped. Only completed iterations count, so the result of an interrupted search is the result of the previous
+     * depth.
+     *
+     * @param root The position to search. It is not changed.
+     * @param maxDepth The deepest iteration to search.
+     * @param timeMillis The time to search for, or 0 to search without a time limit.
+     * @param maxNodes The number of positions to visit, or 0 to search without a node limit.
+     * @param stop A flag that stops the search as soon as it is set, or null.
+     * @return The best move found.
+     */
+    public SearchResult search(GameState root, int maxDepth, long timeMillis, long maxNodes, AtomicBoolean stop) {
+        return search(root, maxDepth, timeMillis, maxNodes, null, stop);
+    }
+
+    /**
+     * Search a position on a clock. The time manager is asked after every completed iteration whether to go on, and
+     * its hard limit aborts the search in the middle of an iteration.
+     *
+     * @param root The position to search. It is not changed.
+     * @param maxDepth The deepest iteration to search.
+     * @param time The time manager of the move.
+     * @param stop A flag that stops the search as soon as it is set, or null.
+     * @return The best move found.
+     */
+    public SearchResult search(GameState root, int maxDepth, TimeManager time, AtomicBoolean stop) {
+        return search(root, maxDepth, time.getHardMillis(), 0, time, stop);
+    }
+
+    /**
+     * Search a position with iterative deepening.
+     *
+     * @param root The position to search. It is not changed.
+     * @param maxDepth The deepest iteration to search.
+     * @param timeMillis The time to search for, or 0 to search without a time limit.
+     * @param maxNodes The number of positions to visit, or 0 to search without a node limit.
+     * @param time The time manager that decides when to stop between iterations, or null.
+     * @param stop A flag that stops the search as soon as it is set, or null.
+     * @return The best move found.
+     */
+    private SearchResult search(GameState root, int maxDepth, long timeMillis, long maxNodes, TimeManager time,
+            AtomicBoolean stop) {
+        long start = System.nanoTime();
+        this.stop = stop == null ? new AtomicBoolean(false) : stop;
+        deadline = timeMillis > 0 ? start + timeMillis * 1000000 : Long.MAX_VALUE;
+        this.maxNodes = maxNodes > 0 ? maxNodes : Long.MAX_VALUE;
+        nodes = 0;
+        aborted = false;
+
+        int bestMove = firstLegalMove(root);
+        int bestScore = root.isFinished() ? terminalScore(root) : evaluator.evaluate(root);
+        int completed = 0;
+
+        for (int depth = 1; depth <= Math.min(maxDepth, MAX_DEPTH) && bestMove >= 0; depth++) {
+            stack[0].copyFrom(root);
+            evaluator.setRoot(stack[0]);
+            rootBestMove = -1;
+            int score = negamax(0, depth, -INFINITY, INFINITY);
+
+            if (aborted)
+                break;
+
+            bestMove = rootBestMove;
+            bestScore = score;
+            completed = depth;
+
+            if (listener == null && time == null)
+                continue;
+
+            SearchResult iteration = new SearchResult(bestMove, bestScore, completed, nodes,
+                    (System.nanoTime() - start) / 1000000);
+
+            if (listener != null)
+                listener.iterationDone(iteration);
+            if (time != null && time.shouldStop(iteration))
+                break;
+        }
+
+        return new SearchResult(bestMove, bestScore, completed, nodes, (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * @param state The position to look up.
+     * @return The best move stored for the position by an earlier search, or -1.
+     */
+    public int getStoredMove(GameState state) {
+        long entry = table.probe(state.canonicalHash());
+
+        if (entry == 0 || TranspositionTable.moveOf(entry) < 0)
+            return -1;
+
+        int move = state.fromCanonicalIndex(TranspositionTable.moveOf(entry));
+        return state.isLegalMove(move) ? move : -1;
+    }
+
+    /**
+     * Forget every searched position.
+     */
+    public void clear() {
+        table.clear();
+    }
+
+    /**
+     * @return The strategy used to score positions.
+     */
+    public Evaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /**
+     * @param evaluator The strategy used to score positions. It must not be shared with another engine. The table is
+     *                  cleared since its scores no longer apply.
+     */
+    public void setEvaluator(Evaluator evaluator) {
+        this.evaluator = evaluator;
+        table.clear();
+    }
+
+    /**
+     * @param listener The listener told about every completed iteration, or null.
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param ply The distance from the root.
+     * @param depth The remaining depth.
+     * @param alpha The lower bound of the window.
+     * @param beta The upper bound of the window.
+     * @return The score of the position at stack[ply] from the point of view of its player to move.
+     */
+    private int negamax(int ply, int depth, int alpha, int beta) {
+        GameState state = stack[ply];
+
+        if ((++nodes & CHECK_INTERVAL) == 0 && (stop.get() || System.nanoTime() > deadline || nodes > maxNodes))
+            aborted = true;
+
+        if (aborted)
+            return 0;
+
+        if (state.isFinished())
+            return terminalScore(state);
+
+        if (depth == 0 || ply == MAX_DEPTH)
+            return evaluator.evaluate(ply, state);
+
+        long key = state.canonicalHash();
+        long entry = table.probe(key);
+        int tableMove = -1;
+
+        if (entry != 0) {
+            if (TranspositionTable.moveOf(entry) >= 0)
+                tableMove = state.fromCanonicalIndex(TranspositionTable.moveOf(entry));
+
+            if (ply > 0 && TranspositionTable.depthOf(entry) >= depth) {
+                int score = TranspositionTable.scoreOf(entry);
+                int bound = TranspositionTable.boundOf(entry);
+
+                if (bound == TranspositionTable.EXACT ||
+                        bound == TranspositionTable.LOWER_BOUND && score >= beta ||
+                        bound == TranspositionTable.UPPER_BOUND && score <= alpha)
+                    return score;
+            }
+        }
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = -1;
+        int mancala = state.getCurrentMancalaIndex();
+        GameState child = stack[ply + 1];
+
+        for (int n = -1; n < GameState.PITS_PER_PLAYER; n++) {
+            int pit = n < 0 ? tableMove : mancala - 1 - n; //Pits close to the mancala first, they earn extra turns
+
+            if (n >= 0 && pit == tableMove || pit < 0 || !state.isLegalMove(pit))
+                continue;
+
+            child.copyFrom(state);
+            child.play(pit);
+            evaluator.play(ply, state, child);
+            int score;
+
+            if (child.isFirstPlayerTurn() == state.isFirstPlayerTurn())
+                score = negamax(ply + 1, depth - 1, alpha, beta);
+            else
+                score = -negamax(ply + 1, depth - 1, -beta, -alpha);
+
+            if (aborted)
+                return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = pit;
+            }
+
+            if (score > alpha)
+                alpha = score;
+
+            if (alpha >= beta)
+                break;
+        }
+
+        int bound = TranspositionTable.EXACT;
+
+        if (bestScore <= originalAlpha)
+            bound = TranspositionTable.UPPER_BOUND;
+        else if (bestScore >= beta)
+            bound = TranspositionTable.LOWER_BOUND;
+
+        table.store(key, depth, bestScore, bound, bestMove < 0 ? -1 : state.toCanonicalIndex(bestMove));
+
+        if (ply == 0)
+            rootBestMove = bestMove;
+
+        return bestScore;
+    }
+
+    /**
+     * @param state A finished position.
+     * @return A score beyond any evaluation for a won or lost game, adjusted by the final margin.
+     */
+    private static int terminalScore(GameState state) {
+        int difference = (state.isFirstPlayerTurn() ? state.getStoreDifference() : -state.getStoreDifference()) *
+                Evaluator.STONE;
+
+        if (difference > 0)
+            return WIN_SCORE + difference;
+        else if (difference < 0)
+            return -WIN_SCORE + difference;
+
+        return 0;
+    }
+
+    /**
+     * @param state A position.
+     * @return The first legal move, or -1 if there is none.
+     */
+    private static int firstLegalMove(GameState state) {
+        for (int i = 0; i < GameState.PIT_COUNT; i++)
+            if (state.isLegalMove(i))
+                return i;
+
+        return -1;
+    }
+}
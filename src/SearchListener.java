@@ -0,0 +1,14 @@
+/**
+ * This will be the strategy that is told about the progress of a search, like to report it to a user or to another
+ * process. It is called on the searching thread, so it must return quickly.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public abstract class SearchListener {
+    /**
+     * Implementation to handle a completed iteration.
+     *
+     * @param result The best move and score of the iteration, with the nodes and time spent so far.
+     */
+    public abstract void iterationDone(SearchResult result);
+}
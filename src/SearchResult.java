@@ -0,0 +1,64 @@
+/**
+ * The outcome of a search: the best move found and what it is worth.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedMillis;
+
+    /**
+     * Constructor that initializes all private attributes to the given parameters.
+     *
+     * @param bestMove The index of the best pit, or -1 if there is no legal move.
+     * @param score The score of the best move from the point of view of the player to move.
+     * @param depth The deepest iteration that was completed.
+     * @param nodes The number of positions visited.
+     * @param elapsedMillis The time spent searching.
+     */
+    public SearchResult(int bestMove, int score, int depth, long nodes, long elapsedMillis) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return The index of the best pit, or -1 if there is no legal move.
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return The score of the best move from the point of view of the player to move.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return The deepest iteration that was completed.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return The number of positions visited.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return The time spent searching.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+}
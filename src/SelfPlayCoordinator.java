@@ -0,0 +1,521 @@
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Hands out batches of self-play games to worker processes and merges what they write into one columnar store (see
+ * ColumnarWriter). Every worker is its own JVM with its own heap, so adding workers scales without one big heap to
+ * collect. The workers connect over the loopback address and speak a small line based protocol:
+ *
+ * <pre>
+ * worker: READY                             coordinator: BATCH lease id games stonesPerPit depth randomMoves seed
+ *                                                        compress evaluator
+ * worker: RESULT lease rows                 coordinator: BATCH ... or DONE
+ * </pre>
+ *
+ * The evaluator is "store", "weights:file" or "network:file". A worker writes the chunks of a batch into a staging
+ * directory of its lease, and the coordinator moves them into the store once the batch is reported, so a store only
+ * ever holds whole batches. The chunks are named after the run, so later runs add to a store instead of replacing
+ * it, and a batch is only merged if every one of its chunks could be moved. If a worker disconnects or does not report
+ * within the lease time, its staging directory is deleted, which tells a worker that is still playing to give up, and
+ * its batch goes back to the front of the queue and the next free worker plays it again from the same seed. A worker
+ * whose lease was revoked stays connected and asks for another batch; only one that stays silent for another lease
+ * time is disconnected. Worker processes that die while work is left are replaced, up to as many times as there are workers.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class SelfPlayCoordinator {
+    public static final String READY = "READY";
+    public static final String BATCH = "BATCH";
+    public static final String RESULT = "RESULT";
+    public static final String DONE = "DONE";
+    public static final long DEFAULT_LEASE_MILLIS = 10 * 60 * 1000;
+
+    private final File store;
+    private final String run;
+    private final long leaseMillis;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connectionPool;
+    private final LinkedBlockingDeque<Batch> pending;
+    private final AtomicInteger remaining;
+    private final AtomicLong nextLease;
+    private final AtomicLong rows;
+    private final AtomicInteger reassigned;
+
+    /**
+     * Constructor that binds the coordinator to any free port of the loopback address.
+     *
+     * @param store The directory the chunk files are merged into.
+     * @param leaseMillis The time a worker has to report a batch before it is reassigned.
+     * @throws IOException If the store cannot be created or no port can be bound.
+     */
+    public SelfPlayCoordinator(File store, long leaseMillis) throws IOException {
+        if (!store.isDirectory() && !store.mkdirs())
+            throw new IOException("Could not create " + store);
+
+        this.store = store;
+        run = "farm-" + Long.toString(System.currentTimeMillis(), 36);
+        this.leaseMillis = leaseMillis;
+        serverSocket = new ServerSocket(0, 64, InetAddress.getLoopbackAddress());
+        connectionPool = Executors.newCachedThreadPool();
+        pending = new LinkedBlockingDeque<Batch>();
+        remaining = new AtomicInteger(0);
+        nextLease = new AtomicLong(1);
+        rows = new AtomicLong(0);
+        reassigned = new AtomicInteger(0);
+    }
+
+    /**
+     * Queue a batch. Batches must be queued before the workers are started.
+     *
+     * @param batch The batch.
+     */
+    public void addBatch(Batch batch) {
+        remaining.incrementAndGet();
+        pending.add(batch);
+    }
+
+    /**
+     * @return The port the workers connect to.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Start worker processes and wait until every batch is merged into the store.
+     *
+     * @param workers The number of worker processes.
+     * @param jvmOptions Options for the worker JVMs, like a heap size.
+     * @return The number of rows merged into the store.
+     * @throws IOException If a worker cannot be started, or every worker died too often.
+     * @throws InterruptedException If the run is interrupted.
+     */
+    public long run(int workers, java.util.List<String> jvmOptions) throws IOException, InterruptedException {
+        connectionPool.execute(new Runnable() {
+            public void run() {
+                accept();
+            }
+        });
+
+        ArrayList<Process> processes = new ArrayList<Process>();
+        int restarts = workers;
+        deleteStagingDirectories(); //Left behind by workers of an earlier run that were killed
+
+        try {
+            for (int i = 0; i < workers; i++)
+                processes.add(startWorker(jvmOptions));
+
+            while (remaining.get() > 0) {
+                Thread.sleep(100);
+
+                for (int i = 0; i < processes.size(); i++) {
+                    if (!isAlive(processes.get(i)) && remaining.get() > 0) {
+                        if (restarts-- == 0)
+                            throw new IOException("Workers keep dying, " + remaining.get() + " batches left");
+
+                        System.err.println("Worker exited with " + processes.get(i).exitValue() + ", starting another");
+                        processes.set(i, startWorker(jvmOptions));
+                    }
+                }
+            }
+        } finally {
+            serverSocket.close();
+            connectionPool.shutdownNow();
+
+            for (Process process : processes) {
+                if (remaining.get() > 0)
+                    process.destroy();
+
+                process.waitFor();
+            }
+
+            deleteStagingDirectories();
+        }
+
+        return rows.get();
+    }
+
+    /**
+     * @return The number of batches that had to be played again.
+     */
+    public int getReassignedCount() {
+        return reassigned.get();
+    }
+
+    /**
+     * Launch a worker JVM with the class path and class data sharing archive of this one.
+     *
+     * @param jvmOptions Options for the worker JVM.
+     * @return The worker process.
+     * @throws IOException If the process cannot be started.
+     */
+    private Process startWorker(java.util.List<String> jvmOptions) throws IOException {
+        java.util.List<String> command = Main.getChildCommand(jvmOptions, "SelfPlayWorker");
+        command.add(Integer.toString(getPort()));
+        command.add(store.getPath());
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+
+    /**
+     * @param process A process.
+     * @return True if the process has not exited. False otherwise.
+     */
+    private static boolean isAlive(Process process) {
+        try {
+            process.exitValue();
+            return false;
+        } catch (IllegalThreadStateException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * Accept workers until the coordinator is closed.
+     */
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+
+                connectionPool.execute(new Runnable() {
+                    public void run() {
+                        serve(socket);
+                    }
+                });
+            } catch (IOException ex) {
+                if (!serverSocket.isClosed())
+                    System.err.println("Could not accept worker: " + ex.getMessage());
+            } catch (RejectedExecutionException ex) {
+                return; //Shut down while accepting
+            }
+        }
+    }
+
+    /**
+     * Lease batches to one worker until the queue is empty. Whatever the worker holds when its connection ends is put
+     * back in the queue.
+     *
+     * @param socket The connection of the worker.
+     */
+    private void serve(Socket socket) {
+        Batch batch = null;
+        long lease = 0;
+
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII));
+            Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                    StandardCharsets.US_ASCII));
+            while (true) {
+                String line;
+
+                try {
+                    line = in.readLine();
+                } catch (SocketTimeoutException ex) {
+                    if (batch == null)
+                        throw ex; //Still silent a lease time after its batch was revoked
+
+                    revoke(batch, lease);
+                    batch = null;
+                    continue;
+                }
+
+                if (line == null)
+                    break;
+
+                String[] tokens = line.split(" ");
+
+                if (tokens[0].equals(RESULT) && batch != null && Long.parseLong(tokens[1]) == lease) {
+                    merge(lease, Long.parseLong(tokens[2]));
+                    batch = null;
+                } else if (!tokens[0].equals(READY) && !tokens[0].equals(RESULT)) //A revoked batch reported too late
+                    throw new IOException("Unexpected message: " + line);
+
+                while (batch == null && remaining.get() > 0)
+                    batch = pending.poll(100, TimeUnit.MILLISECONDS); //A batch may still come back from a dead worker
+
+                if (batch == null) {
+                    out.write(DONE + "\n");
+                    out.flush();
+                    break;
+                }
+
+                lease = nextLease.getAndIncrement();
+
+                if (!getStaging(store, lease).mkdir())
+                    throw new IOException("Could not create " + getStaging(store, lease));
+
+                socket.setSoTimeout((int) Math.min(leaseMillis, Integer.MAX_VALUE));
+                out.write(BATCH + " " + lease + " " + batch.format() + "\n");
+                out.flush();
+            }
+        } catch (IOException ex) {
+            if (batch != null)
+                System.err.println("Lost batch " + batch.getId() + ": " + ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ex) {}
+
+            if (batch != null)
+                revoke(batch, lease);
+        }
+    }
+
+    /**
+     * Take a batch back from its worker: delete whatever the worker wrote for it, which also tells the worker to give
+     * up, and put the batch back at the front of the queue.
+     *
+     * @param batch The batch.
+     * @param lease The lease of the batch.
+     */
+    private void revoke(Batch batch, long lease) {
+        deleteStaging(getStaging(store, lease));
+        reassigned.incrementAndGet();
+        pending.addFirst(batch);
+    }
+
+    /**
+     * Move the chunks of a reported batch from its staging directory into the store, named after the run. Either every
+     * chunk is moved or, if one cannot be, the chunks moved so far are moved back, so a batch that is played again
+     * never leaves rows behind twice. An existing file of the store is never replaced.
+     *
+     * @param lease The lease of the batch.
+     * @param batchRows The number of rows the worker wrote.
+     * @throws IOException If a chunk cannot be moved.
+     */
+    private void merge(long lease, long batchRows) throws IOException {
+        File staging = getStaging(store, lease);
+        File[] chunks = staging.listFiles();
+
+        if (chunks == null)
+            throw new IOException("Missing staging directory " + staging);
+
+        ArrayList<File> moved = new ArrayList<File>();
+
+        try {
+            for (File chunk : chunks) {
+                File target = new File(store, run + "-" + chunk.getName());
+
+                if (target.exists() || !chunk.renameTo(target))
+                    throw new IOException("Could not move " + chunk + " to " + target);
+
+                moved.add(target);
+            }
+        } catch (IOException ex) {
+            for (File target : moved)
+                target.renameTo(new File(staging, target.getName().substring(run.length() + 1)));
+
+            throw ex;
+        }
+
+        staging.delete();
+        rows.addAndGet(batchRows);
+        remaining.decrementAndGet();
+    }
+
+    /**
+     * Delete the staging directory of every lease in the store.
+     */
+    private void deleteStagingDirectories() {
+        File[] files = store.listFiles();
+
+        if (files != null)
+            for (File file : files)
+                if (file.isDirectory() && file.getName().startsWith("lease-") && file.getName().endsWith(".tmp"))
+                    deleteStaging(file);
+    }
+
+    /**
+     * Delete whatever a lost worker wrote for its batch.
+     *
+     * @param staging The staging directory of the lease of the batch.
+     */
+    private static void deleteStaging(File staging) {
+        File[] chunks = staging.listFiles();
+
+        if (chunks != null)
+            for (File chunk : chunks)
+                chunk.delete();
+
+        staging.delete();
+    }
+
+    /**
+     * @param store The store directory.
+     * @param lease The lease of a batch.
+     * @return The directory the worker holding the lease writes its chunks to. The coordinator creates it when the
+     *         batch is leased and deletes it when the lease is revoked.
+     */
+    public static File getStaging(File store, long lease) {
+        return new File(store, "lease-" + lease + ".tmp");
+    }
+
+    /**
+     * A number of self-play games played with the same engine settings.
+     */
+    public static class Batch {
+        private final int id;
+        private final int games;
+        private final int stonesPerPit;
+        private final int depth;
+        private final int randomMoves;
+        private final long seed;
+        private final boolean compressed;
+        private final String evaluator;
+
+        /**
+         * Constructor that initializes all private attributes to the given parameters.
+         *
+         * @param id The id of the batch, which names its chunk files.
+         * @param games The number of games.
+         * @param stonesPerPit The number of starting stones in every pit.
+         * @param depth The search depth.
+         * @param randomMoves The number of random moves at the start of every game.
+         * @param seed The seed of the random moves, so a reassigned batch plays the same openings.
+         * @param compressed Whether or not to delta and varint encode the columns.
+         * @param evaluator "store", "weights:file" or "network:file".
+         */
+        public Batch(int id, int games, int stonesPerPit, int depth, int randomMoves, long seed, boolean compressed,
+                String evaluator) {
+            this.id = id;
+            this.games = games;
+            this.stonesPerPit = stonesPerPit;
+            this.depth = depth;
+            this.randomMoves = randomMoves;
+            this.seed = seed;
+            this.compressed = compressed;
+            this.evaluator = evaluator;
+        }
+
+        /**
+         * @param tokens The tokens of a BATCH line.
+         * @param offset The index of the id token.
+         * @return The decoded batch.
+         */
+        public static Batch parse(String[] tokens, int offset) {
+            return new Batch(Integer.parseInt(tokens[offset]), Integer.parseInt(tokens[offset + 1]),
+                    Integer.parseInt(tokens[offset + 2]), Integer.parseInt(tokens[offset + 3]),
+                    Integer.parseInt(tokens[offset + 4]), Long.parseLong(tokens[offset + 5]),
+                    tokens[offset + 6].equals("1"), tokens[offset + 7]);
+        }
+
+        /**
+         * @return The batch as the tokens of a BATCH line after the lease.
+         */
+        public String format() {
+            return id + " " + games + " " + stonesPerPit + " " + depth + " " + randomMoves + " " + seed + " " +
+                    (compressed ? 1 : 0) + " " + evaluator;
+        }
+
+        /**
+         * @return The id of the batch.
+         */
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return The number of games.
+         */
+        public int getGames() {
+            return games;
+        }
+
+        /**
+         * @return The number of starting stones in every pit.
+         */
+        public int getStonesPerPit() {
+            return stonesPerPit;
+        }
+
+        /**
+         * @return The search depth.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * @return The number of random moves at the start of every game.
+         */
+        public int getRandomMoves() {
+            return randomMoves;
+        }
+
+        /**
+         * @return The seed of the random moves.
+         */
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * @return True if the columns are delta and varint encoded. False otherwise.
+         */
+        public boolean isCompressed() {
+            return compressed;
+        }
+
+        /**
+         * @return "store", "weights:file" or "network:file".
+         */
+        public String getEvaluator() {
+            return evaluator;
+        }
+    }
+
+    /**
+     * Run a self-play farm.
+     *
+     * @param args The store directory, the number of batches, the games per batch, the number of workers, and
+     *             optionally the depth, the number of random moves, "compress", an evaluator and worker JVM options
+     *             starting with "-".
+     * @throws Exception If the farm fails.
+     */
+    public static void main(String[] args) throws Exception {
+        ArrayList<String> options = new ArrayList<String>();
+        ArrayList<String> jvmOptions = new ArrayList<String>();
+        String evaluator = "store";
+        boolean compress = false;
+
+        for (String arg : args) {
+            if (arg.startsWith("-"))
+                jvmOptions.add(arg);
+            else if (arg.equals("compress"))
+                compress = true;
+            else if (arg.equals("store") || arg.startsWith("weights:") || arg.startsWith("network:"))
+                evaluator = arg;
+            else
+                options.add(arg);
+        }
+
+        if (options.size() < 4) {
+            System.err.println("Usage: store batches gamesPerBatch workers [depth] [randomMoves] [compress] " +
+                    "[store|weights:file|network:file] [-jvmOption...]");
+            return;
+        }
+
+        int batches = Integer.parseInt(options.get(1));
+        int games = Integer.parseInt(options.get(2));
+        int depth = options.size() > 4 ? Integer.parseInt(options.get(4)) : 6;
+        int randomMoves = options.size() > 5 ? Integer.parseInt(options.get(5)) : 6;
+        SelfPlayCoordinator coordinator = new SelfPlayCoordinator(new File(options.get(0)), DEFAULT_LEASE_MILLIS);
+        Random rand = new Random();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < batches; i++)
+            coordinator.addBatch(new Batch(i, games, 4, depth, randomMoves, rand.nextLong(), compress, evaluator));
+
+        long rows = coordinator.run(Integer.parseInt(options.get(3)), jvmOptions);
+        System.out.printf("%d rows in %.1fs, %d batches reassigned%n", rows, (System.nanoTime() - start) / 1e9,
+                coordinator.getReassignedCount());
+    }
+}
@@ -0,0 +1,127 @@
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * A worker process of the self-play farm. It asks the SelfPlayCoordinator for batches, plays them and writes their
+ * positions into the staging directory of the lease, until the coordinator has no work left. When the coordinator
+ * revokes a lease, it deletes the staging directory, and the worker gives up the batch instead of writing on and asks
+ * for another one.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class SelfPlayWorker {
+    private final SearchEngine engine;
+    private String evaluator;
+
+    /**
+     * Constructor that initializes all private attributes.
+     */
+    public SelfPlayWorker() {
+        engine = new SearchEngine(16);
+        evaluator = "store";
+    }
+
+    /**
+     * Play every game of a batch.
+     *
+     * @param batch The batch.
+     * @param directory The directory to write the chunks to.
+     * @return The number of rows written.
+     * @throws IOException If the evaluator cannot be loaded, a chunk cannot be written or the lease was revoked.
+     */
+    public long play(SelfPlayCoordinator.Batch batch, File directory) throws IOException {
+        setEvaluator(batch.getEvaluator());
+        checkLease(directory);
+        ColumnarWriter writer = new ColumnarWriter(directory, "batch-" + batch.getId(), batch.isCompressed());
+        Random rand = new Random(batch.getSeed());
+
+        for (int g = 0; g < batch.getGames(); g++) {
+            checkLease(directory);
+            writer.addSelfPlayGame(engine, batch.getStonesPerPit(), batch.getDepth(), batch.getRandomMoves(), rand);
+        }
+
+        writer.close();
+        return writer.getRowCount();
+    }
+
+    /**
+     * @param directory The staging directory of a lease.
+     * @throws IOException If the coordinator deleted it because the lease was revoked.
+     */
+    private static void checkLease(File directory) throws IOException {
+        if (!directory.isDirectory())
+            throw new IOException("Lease of " + directory + " was revoked");
+    }
+
+    /**
+     * Switch the evaluation of the engine, unless the previous batch already used it.
+     *
+     * @param name "store", "weights:file" or "network:file".
+     * @throws IOException If the file cannot be read.
+     */
+    private void setEvaluator(String name) throws IOException {
+        if (name.equals(evaluator))
+            return;
+
+        if (name.startsWith("weights:"))
+            engine.setEvaluator(WeightedEvaluator.load(new File(name.substring("weights:".length()))));
+        else if (name.startsWith("network:"))
+            engine.setEvaluator(NetworkEvaluator.load(new File(name.substring("network:".length()))));
+        else
+            engine.setEvaluator(new StoreDifferenceEvaluator());
+
+        engine.clear();
+        evaluator = name;
+    }
+
+    /**
+     * Connect to the coordinator and play batches until it is done.
+     *
+     * @param args The port of the coordinator and the store directory.
+     * @throws IOException If the connection fails.
+     */
+    public static void main(String[] args) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]));
+        socket.setTcpNoDelay(true);
+        File store = new File(args[1]);
+        BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.US_ASCII));
+        Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+        SelfPlayWorker worker = new SelfPlayWorker();
+
+        try {
+            out.write(SelfPlayCoordinator.READY + "\n");
+            out.flush();
+            String line;
+
+            while ((line = in.readLine()) != null && !line.equals(SelfPlayCoordinator.DONE)) {
+                String[] tokens = line.split(" ");
+
+                if (!tokens[0].equals(SelfPlayCoordinator.BATCH))
+                    throw new IOException("Unexpected message: " + line);
+
+                long lease = Long.parseLong(tokens[1]);
+                File staging = SelfPlayCoordinator.getStaging(store, lease);
+                long rows;
+
+                try {
+                    rows = worker.play(SelfPlayCoordinator.Batch.parse(tokens, 2), staging);
+                } catch (IOException ex) {
+                    if (staging.isDirectory())
+                        throw ex;
+
+                    out.write(SelfPlayCoordinator.READY + "\n"); //The lease was revoked, another worker plays the batch
+                    out.flush();
+                    continue;
+                }
+
+                out.write(SelfPlayCoordinator.RESULT + " " + lease + " " + rows + "\n");
+                out.flush();
+            }
+        } finally {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * An executor that runs its tasks one at a time, in submission order, on top of a shared executor. Every game owns one
+ * so that moves of a game never run concurrently while thousands of games share a few threads.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class SerialExecutor implements Executor {
+    private final ArrayDeque<Runnable> tasks;
+    private final Executor executor;
+    private Runnable active;
+
+    /**
+     * Constructor that initializes all private attributes.
+     *
+     * @param executor The shared executor that will run the tasks.
+     */
+    public SerialExecutor(Executor executor) {
+        this.executor = executor;
+        tasks = new ArrayDeque<Runnable>();
+        active = null;
+    }
+
+    /**
+     * Queue a task behind all previously submitted tasks.
+     *
+     * @param task The task to run.
+     */
+    public synchronized void execute(final Runnable task) {
+        tasks.add(new Runnable() {
+            public void run() {
+                try {
+                    task.run();
+                } finally {
+                    scheduleNext();
+                }
+            }
+        });
+
+        if (active == null)
+            scheduleNext();
+    }
+
+    /**
+     * Hand the next queued task to the shared executor.
+     */
+    private synchronized void scheduleNext() {
+        active = tasks.poll();
+
+        if (active != null)
+            executor.execute(active);
+    }
+}
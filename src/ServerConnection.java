@@ -0,0 +1,167 @@
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * One client connected to the game server. It reads commands line by line and forwards them to the corresponding
+ * game. Everything sent to the client goes through a ConnectionWriter, so a slow client never stalls a game.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class ServerConnection implements Runnable {
+    public static final int MAX_OVERFLOWS = 4;
+    public static final long OVERFLOW_FORGIVE_MILLIS = 10000;
+
+    private final GameServer server;
+    private final Socket socket;
+    private final Executor writerPool;
+    private final ScheduledExecutorService writeDeadlines;
+    private final Set<GameSession> joinedGames;
+    private final AtomicInteger overflows;
+    private volatile long lastOverflow;
+    private ConnectionWriter writer;
+
+    /**
+     * Constructor that initializes all private attributes.
+     *
+     * @param server The server that accepted the connection.
+     * @param socket The socket of the client.
+     * @param writerPool The shared executor that writes to the clients.
+     * @param writeDeadlines The shared scheduler that drops clients that do not take their updates in time.
+     */
+    public ServerConnection(GameServer server, Socket socket, Executor writerPool,
+            ScheduledExecutorService writeDeadlines) {
+        this.server = server;
+        this.socket = socket;
+        this.writerPool = writerPool;
+        this.writeDeadlines = writeDeadlines;
+        joinedGames = Collections.newSetFromMap(new ConcurrentHashMap<GameSession, Boolean>());
+        overflows = new AtomicInteger(0);
+    }
+
+    /**
+     * Read and dispatch commands until the client quits or disconnects.
+     */
+    public void run() {
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.US_ASCII));
+            writer = new ConnectionWriter(this, new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                    StandardCharsets.US_ASCII)), writerPool, writeDeadlines);
+            String line;
+
+            while ((line = in.readLine()) != null)
+                if (!handle(line.trim().split(" +")))
+                    break;
+        } catch (IOException ex) {
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Execute a single command.
+     *
+     * @param tokens The tokens of the command line.
+     * @return False if the client asked to quit. True otherwise.
+     */
+    private boolean handle(String[] tokens) {
+        try {
+            String command = tokens[0];
+
+            if (command.equals(GameProtocol.QUIT))
+                return false;
+
+            if (command.equals(GameProtocol.NEW)) {
+                int stonesPerPit = Integer.parseInt(tokens[1]);
+
+                if (stonesPerPit < GameState.MIN_STONES_PER_PIT || stonesPerPit > GameState.MAX_STONES_PER_PIT) {
+                    send(GameProtocol.formatError("stones per pit must be " + GameState.MIN_STONES_PER_PIT + " to " +
+                            GameState.MAX_STONES_PER_PIT));
+                    return true;
+                }
+
+                GameSession game = server.createGame(stonesPerPit);
+                send(GameProtocol.GAME + " " + game.getId());
+                joinedGames.add(game);
+                game.attach(this);
+                return true;
+            }
+
+            GameSession game = server.getGame(Integer.parseInt(tokens[1]));
+
+            if (game == null)
+                send(GameProtocol.formatError("unknown game " + tokens[1]));
+            else if (command.equals(GameProtocol.JOIN)) {
+                joinedGames.add(game);
+                game.attach(this);
+            }
+            else if (command.equals(GameProtocol.SYNC))
+                game.sync(this);
+            else if (command.equals(GameProtocol.LEAVE)) {
+                joinedGames.remove(game);
+                game.detach(this);
+            }
+            else if (command.equals(GameProtocol.MOVE))
+                game.move(this, Integer.parseInt(tokens[2]));
+            else
+                send(GameProtocol.formatError("unknown command " + command));
+        } catch (RuntimeException ex) {
+            send(GameProtocol.formatError("malformed command"));
+        }
+
+        return true;
+    }
+
+    /**
+     * Queue a single line to be sent to the client. This never blocks.
+     *
+     * @param line The line to send.
+     */
+    public void send(String line) {
+        writer.offer(line);
+    }
+
+    /**
+     * Called by the writer when the client fell so far behind that its queued lines were discarded. The discarded
+     * moves are collapsed into a fresh snapshot of every joined game. A client that keeps falling behind is dropped.
+     */
+    public void overflowed() {
+        lastOverflow = System.nanoTime();
+
+        if (overflows.incrementAndGet() > MAX_OVERFLOWS) {
+            close();
+            return;
+        }
+
+        for (GameSession game : joinedGames)
+            game.sync(this);
+    }
+
+    /**
+     * Called by the writer when every queued line was sent. The overflows are only forgiven once the client has kept
+     * up for OVERFLOW_FORGIVE_MILLIS, so a client that is always slow but drains its queue now and then is still
+     * dropped.
+     */
+    public void caughtUp() {
+        if (overflows.get() > 0 && System.nanoTime() - lastOverflow >= OVERFLOW_FORGIVE_MILLIS * 1000000)
+            overflows.set(0);
+    }
+
+    /**
+     * Detach from every joined game and close the socket.
+     */
+    public void close() {
+        for (GameSession game : joinedGames)
+            game.detach(this);
+
+        joinedGames.clear();
+
+        try {
+            socket.close();
+        } catch (IOException ex) {}
+    }
+}
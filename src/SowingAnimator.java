@@ -0,0 +1,246 @@
+import java.awt.*;
+import java.awt.event.*;
+import java.util.*;
+import javax.swing.*;
+
+/**
+ * The glass pane of the board that animates sowing. The model is updated at once when a move is made, so the engine
+ * and the rules never wait for the animation; every slot a stone moved into is only hidden in its container until
+ * the stone's flight lands. Stones leave one after another and fly in a straight line to their new container.
+ *
+ * A single timer drives every flight. Positions are computed from the time since the move started, not from the
+ * number of frames, so frames the event dispatch thread had no time for are simply skipped. A new move, a take back or
+ * a new game fast-forwards whatever is still flying. The pane has no mouse listeners, so clicks pass through it.
+ *
+ * Stones only fly while the pane is installed in a container with the views of the model. It does not have to be
+ * showing, so a headless board, like the one of the MoveBudget harness, pays for the flights like the real one.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class SowingAnimator extends JComponent {
+    public static final int FRAME_MILLIS = 16;
+    public static final long STAGGER_MILLIS = 60;
+    public static final long FLIGHT_MILLIS = 200;
+
+    private final javax.swing.Timer timer;
+    private final Model model;
+    private final ArrayList<Flight> flights;
+    private final Flight[] lastFlights;
+    private BoardStyle style;
+    private long start;
+    private long nextLaunch;
+    private boolean enabled;
+
+    /**
+     * Constructor that initializes all private attributes.
+     *
+     * @param model The model whose stones are animated.
+     */
+    public SowingAnimator(Model model) {
+        this.model = model;
+        style = null;
+        flights = new ArrayList<Flight>();
+        lastFlights = new Flight[(Model.PITS_PER_PLAYER + 1) * 2 * StoneLayout.SLOT_COUNT];
+        enabled = true;
+        setOpaque(false);
+
+        timer = new javax.swing.Timer(FRAME_MILLIS, new
+            ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    advance();
+                }
+            });
+        timer.setCoalesce(true); //Drop frames instead of queueing them when the board falls behind
+    }
+
+    /**
+     * Fast-forward the previous move and start timing a new one.
+     */
+    public void beginMove() {
+        finish();
+        start = System.nanoTime();
+        nextLaunch = 0;
+    }
+
+    /**
+     * Animate a stone that was just moved from one container to another. The stone must already have been added to
+     * its new container, where its slot is hidden until it lands.
+     *
+     * @param stone The stone.
+     * @param from The index of the container the stone left.
+     * @param fromSlot The slot the stone had in the container it left.
+     * @param to The index of the container the stone was added to.
+     * @param toSlot The slot of the stone in its new container.
+     */
+    public void addFlight(Stone stone, int from, int fromSlot, int to, int toSlot) {
+        if (!enabled || style == null || getParent() == null)
+            return;
+
+        StoneLayout fromLayout = style.getLayout(from);
+        StoneLayout toLayout = style.getLayout(to);
+        Point source = SwingUtilities.convertPoint(model.getView(from), fromLayout.getX(fromSlot),
+                fromLayout.getY(fromSlot), this);
+        Point target = SwingUtilities.convertPoint(model.getView(to), toLayout.getX(toSlot), toLayout.getY(toSlot),
+                this);
+        Flight previous = lastFlights[key(from, fromSlot)];
+        long launch = nextLaunch;
+
+        if (previous != null)
+            launch = Math.max(launch, previous.launch + FLIGHT_MILLIS);
+
+        Flight flight = new Flight(stone, previous, to, key(to, toSlot), source, target, launch);
+        flights.add(flight);
+        lastFlights[flight.key] = flight;
+        nextLaunch += STAGGER_MILLIS;
+
+        if (!timer.isRunning())
+            timer.start();
+    }
+
+    /**
+     * Land every stone that is still flying.
+     */
+    public void finish() {
+        if (flights.isEmpty())
+            return;
+
+        for (Flight flight : flights) {
+            lastFlights[flight.key] = null;
+            model.getView(flight.to).repaint();
+        }
+
+        flights.clear();
+        timer.stop();
+        repaint();
+    }
+
+    /**
+     * @param index The index of a container.
+     * @param slot A slot of the container.
+     * @return True if the stone of the slot is still on its way and must not be drawn there. False otherwise.
+     */
+    public boolean isFlying(int index, int slot) {
+        return !flights.isEmpty() && lastFlights[key(index, slot)] != null;
+    }
+
+    /**
+     * Specify the style the stones are drawn and laid out with. Stones do not fly before a style is set.
+     *
+     * @param style The style of the board.
+     */
+    public void setStyle(BoardStyle style) {
+        finish();
+        this.style = style;
+    }
+
+    /**
+     * @return True if sowing is animated. False if stones are moved at once.
+     */
+    public boolean isAnimationEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled Whether or not sowing is animated.
+     */
+    public void setAnimationEnabled(boolean enabled) {
+        this.enabled = enabled;
+
+        if (!enabled)
+            finish();
+    }
+
+    /**
+     * Land the flights whose time is up and redraw the ones still in the air.
+     */
+    private void advance() {
+        long now = (System.nanoTime() - start) / 1000000;
+        Iterator<Flight> it = flights.iterator();
+
+        while (it.hasNext()) {
+            Flight flight = it.next();
+
+            if (now >= flight.launch + FLIGHT_MILLIS) {
+                it.remove();
+
+                if (lastFlights[flight.key] == flight)
+                    lastFlights[flight.key] = null;
+
+                flight.landed = true;
+                model.getView(flight.to).repaint();
+            }
+        }
+
+        if (flights.isEmpty())
+            timer.stop();
+
+        repaint();
+    }
+
+    /**
+     * @param g the graphics engine that will be used to draw the flying stones.
+     */
+    protected void paintComponent(Graphics g) {
+        if (flights.isEmpty())
+            return;
+
+        Graphics2D g2 = (Graphics2D) g;
+        long now = (System.nanoTime() - start) / 1000000;
+
+        for (Flight flight : flights) {
+            if (flight.previous != null && !flight.previous.landed)
+                continue; //The stone is still drawn by its earlier flight
+
+            double progress = Math.min(Math.max((now - flight.launch) / (double) FLIGHT_MILLIS, 0), 1);
+            progress = progress * progress * (3 - 2 * progress); //Ease in and out
+            int x = (int) Math.round(flight.source.x + (flight.target.x - flight.source.x) * progress);
+            int y = (int) Math.round(flight.source.y + (flight.target.y - flight.source.y) * progress);
+            style.drawStone(g2, flight.stone, x, y);
+        }
+    }
+
+    /**
+     * @param index The index of a container.
+     * @param slot A slot of the container.
+     * @return The index of the slot in the table of flights.
+     */
+    private static int key(int index, int slot) {
+        return index * StoneLayout.SLOT_COUNT + slot % StoneLayout.SLOT_COUNT;
+    }
+
+    /**
+     * One stone moving from one container to another.
+     */
+    private static class Flight {
+        private final Stone stone;
+        private final Flight previous;
+        private final int to;
+        private final int key;
+        private final Point source;
+        private final Point target;
+        private final long launch;
+        private boolean landed;
+
+        /**
+         * Constructor that initializes all private attributes to the given parameters.
+         *
+         * @param stone The stone.
+         * @param previous The earlier flight of the same stone in this move, or null.
+         * @param to The index of the container the stone flies to.
+         * @param key The slot the stone flies to in the table of flights.
+         * @param source The starting point on the glass pane.
+         * @param target The end point on the glass pane.
+         * @param launch The time the stone leaves, in milliseconds since the move started.
+         */
+        private Flight(Stone stone, Flight previous, int to, int key, Point source, Point target, long launch) {
+            this.stone = stone;
+            this.previous = previous;
+            this.to = to;
+            this.key = key;
+            this.source = source;
+            this.target = target;
+            this.launch = launch;
+            landed = false;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import java.awt.*;
+import java.util.*;
+
+/**
+ * A stone, shared by every stone of the same color. There is one instance per color of a fixed palette, so a board
+ * only holds a reference per stone; where a stone is drawn follows from its slot in its container and how it is drawn
+ * from the style of the board. Stones are immutable and can be shared by any number of boards and threads.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class Stone {
+    public static final int PALETTE_SIZE = 64;
+
+    private static final Stone[] PALETTE = new Stone[PALETTE_SIZE];
+    private static final Random RAND = new Random();
+
+    static {
+        Random colors = new Random(0x53544F4E45L); //The same palette on every run
+
+        for (int i = 0; i < PALETTE_SIZE; i++)
+            PALETTE[i] = new Stone(i, new Color(colors.nextFloat(), colors.nextFloat(), colors.nextFloat()));
+    }
+
+    private final int paletteIndex;
+    private final Color color;
+
+    /**
+     * Constructor that initializes all private attributes to the given parameters.
+     *
+     * @param paletteIndex The index of the stone in the palette.
+     * @param color The color of the stone.
+     */
+    private Stone(int paletteIndex, Color color) {
+        this.paletteIndex = paletteIndex;
+        this.color = color;
+    }
+
+    /**
+     * @return A stone of a random color of the palette.
+     */
+    public static Stone random() {
+        return PALETTE[RAND.nextInt(PALETTE_SIZE)];
+    }
+
+    /**
+     * @param paletteIndex The index of a stone in the palette.
+     * @return The stone of that color.
+     */
+    public static Stone get(int paletteIndex) {
+        return PALETTE[paletteIndex];
+    }
+
+    /**
+     * @return The index of the stone in the palette.
+     */
+    public int getPaletteIndex() {
+        return paletteIndex;
+    }
+
+    /**
+     * @return The color of the stone.
+     */
+    public Color getColor() {
+        return color;
+    }
+}
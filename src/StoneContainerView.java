@@ -9,6 +9,8 @@ import javax.swing.*;
  * @author David Tang, Jonathan Yee, Stefan Schmainta
  */
 public class StoneContainerView extends JPanel {
+    public static final Color HINT_COLOR = new Color(0, 150, 60);
+
     private int index;
     private Model model;
     private BoardView boardView;
@@ -43,8 +45,41 @@ public class StoneContainerView extends JPanel {
         Graphics2D g2 = (Graphics2D) g;
 
         container.draw(g2);
-        for (ContainingShape stone : model.getModel(index)) //Retrieve specific model
-            stone.drawFill(g2);
+        ArrayList<Stone> stones = model.getModel(index); //Retrieve specific model
+        StoneLayout layout = getStoneLayout();
+
+        for (int slot = 0; slot < stones.size(); slot++)
+            if (!boardView.getAnimator().isFlying(index, slot)) //Flying stones are drawn by the animator
+                boardView.getStyle().drawStone(g2, stones.get(slot), layout.getX(slot), layout.getY(slot));
+
+        Analysis analysis = boardView.getAnalysis();
+
+        if (analysis != null && analysis.getScore(index) != Analysis.NO_SCORE)
+            drawHint(g2, analysis);
+    }
+
+    /**
+     * Draw the score of playing this pit below it, and outline the pit if it is the best move.
+     *
+     * @param g2 the graphics engine that will be used to draw the hint.
+     * @param analysis The analysis of the current position.
+     */
+    private void drawHint(Graphics2D g2, Analysis analysis) {
+        boolean best = analysis.getBestMove() == index;
+        String text = analysis.formatScore(index);
+        g2.setFont(getFont().deriveFont(best ? Font.BOLD : Font.PLAIN, 14f));
+        FontMetrics metrics = g2.getFontMetrics();
+        int x = container.getX() + (container.getWidth() - metrics.stringWidth(text)) / 2;
+        int y = Math.min(container.getY() + container.getHeight() + metrics.getAscent(), getHeight() - metrics.getDescent());
+        g2.setColor(best ? HINT_COLOR : Color.DARK_GRAY);
+        g2.drawString(text, x, y);
+
+        if (best) {
+            Stroke stroke = g2.getStroke();
+            g2.setStroke(new BasicStroke(3));
+            g2.draw(container.getShape());
+            g2.setStroke(stroke);
+        }
     }
 
     /**
@@ -58,11 +93,14 @@ public class StoneContainerView extends JPanel {
         return new
             MouseMotionAdapter() {
                 public synchronized void mouseMoved(MouseEvent e) {
-                    if (!model.isGameFinished() && container.contains(e.getPoint()) && model.isCorrectSide(index)) {
+                    if (!model.isGameFinished() && container.contains(e.getPoint()) && model.isCorrectSide(index) &&
+                            !boardView.getEnginePlayer().isEngineTurn() && !boardView.isReplaying()) {
                         setContainerColor(boardView.getStyle().getHighlightedColor());
                         for (int i = 0; i < (Model.PITS_PER_PLAYER + 1) * 2; i++)
                             if (model.getView(i) != StoneContainerView.this)
                                 model.getView(i).setContainerColor(boardView.getStyle().getNaturalColor());
+
+                        boardView.getEnginePlayer().hover(index); //The human is likely to play this pit
                     }
                     else
                         setContainerColor(boardView.getStyle().getNaturalColor());
@@ -81,55 +119,32 @@ public class StoneContainerView extends JPanel {
         return new
             MouseAdapter() {
                 public synchronized void mousePressed(MouseEvent e) {
-                    if (container.contains(e.getPoint()) && !model.getModel(index).isEmpty() && model.isCorrectSide(index)) {
-                        model.copyPosition();
-                        model.resetTakeBackCount();
-                        int pitIndex = index;
-                        int trueIndex = 0;
-
-                        ArrayList<ContainingShape> stones = model.removeAllContainerStones(index);
-                        setContainerColor(boardView.getStyle().getNaturalColor());
-                        
-                        for (int i = 0; i < stones.size(); i++) {
-                            trueIndex = ++pitIndex % ((Model.PITS_PER_PLAYER + 1) * 2);
-
-                            if (model.isFirstPlayerTurn() && trueIndex != BoardView.PLAYER_TWO_MANCALA_INDEX ||
-                                    !model.isFirstPlayerTurn() && trueIndex != BoardView.PLAYER_ONE_MANCALA_INDEX)
-                                model.addStone(stones.get(i), trueIndex);
-                            else
-                                i--;
-                        }
-                        
-                        if (model.getModel(trueIndex).size() == 1 && model.isCorrectSide(trueIndex) &&
-                                trueIndex != BoardView.PLAYER_TWO_MANCALA_INDEX && trueIndex != BoardView.PLAYER_TWO_MANCALA_INDEX) {
-                            Iterator<ContainingShape> it = model.getModel(12 - trueIndex).iterator();
-                            
-                            while (it.hasNext()) {
-                                ContainingShape stone = it.next();
-                                it.remove();
-                                
-                                if (model.isFirstPlayerTurn())
-                                    model.addStone(stone, BoardView.PLAYER_ONE_MANCALA_INDEX);
-                                else
-                                    model.addStone(stone, BoardView.PLAYER_TWO_MANCALA_INDEX);
-                            }
-                            
-                            model.getView(12 - trueIndex).repaint();
-                        }
-                        
-                        if (model.isFirstPlayerTurn() && pitIndex % ((Model.PITS_PER_PLAYER + 1) * 2) != BoardView.PLAYER_ONE_MANCALA_INDEX ||
-                                !model.isFirstPlayerTurn() && pitIndex % ((Model.PITS_PER_PLAYER + 1) * 2) != BoardView.PLAYER_TWO_MANCALA_INDEX)
-                            model.switchPlayers();
-
-                        if (!model.takeBackAllowed())
-                            boardView.disableTakeBack();
-
-                        model.checkGameStatus();
-                    }
+                    if (container.contains(e.getPoint()) && !model.getModel(index).isEmpty() && model.isCorrectSide(index) &&
+                            !boardView.getEnginePlayer().isEngineTurn() && !boardView.isReplaying())
+                        playPit();
                 }
             };
     }
 
+    /**
+     * Make a move on the board by sowing the stones of this pit. The caller must make sure that the pit is not empty
+     * and that it is the current player's pit.
+     */
+    public void playPit() {
+        boardView.getAnimator().beginMove();
+        boardView.recordMove(index);
+        model.copyPosition();
+        model.resetTakeBackCount();
+        setContainerColor(boardView.getStyle().getNaturalColor());
+        model.playPit(index);
+
+        if (!model.takeBackAllowed())
+            boardView.disableTakeBack();
+
+        boardView.getEnginePlayer().moveMade();
+        boardView.positionChanged();
+    }
+
     /**
      * @return The shape of the stone container.
      */
@@ -137,6 +152,13 @@ public class StoneContainerView extends JPanel {
         return container;
     }
 
+    /**
+     * @return The stone positions of this container in the current style.
+     */
+    public StoneLayout getStoneLayout() {
+        return boardView.getStyle().getLayout(index);
+    }
+
     /**
      * Change the color of the container.
      *
@@ -0,0 +1,53 @@
+/**
+ * The position of every stone slot of a container, computed once per style and kind of container. Stones fill a grid
+ * of columns, and once the grid is full further stones are stacked on top of it, shifted by part of a stone, so a
+ * container never overflows no matter how many stones it holds.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class StoneLayout {
+    public static final int MAX_ROWS = 8;
+    public static final int SLOT_COUNT = Byte.MAX_VALUE + 1;
+
+    private final int[] xs;
+    private final int[] ys;
+
+    /**
+     * Constructor that computes the position of every slot.
+     *
+     * @param container The shape of the container.
+     * @param stone The shape of a stone.
+     */
+    public StoneLayout(ContainingShape container, ContainingShape stone) {
+        int left = container.getWidth() / 4;
+        int top = container.getHeight() / 4;
+        int columns = Math.max(1, (container.getWidth() - left) / stone.getWidth());
+        int rows = Math.max(1, Math.min(MAX_ROWS, (container.getHeight() - top) / stone.getHeight()));
+        int capacity = columns * rows;
+        xs = new int[SLOT_COUNT];
+        ys = new int[SLOT_COUNT];
+
+        for (int slot = 0; slot < SLOT_COUNT; slot++) {
+            int layer = slot / capacity;
+            int cell = slot % capacity;
+            xs[slot] = left + cell / rows * stone.getWidth() + layer % 2 * stone.getWidth() / 2;
+            ys[slot] = top + cell % rows * stone.getHeight() + layer / 2 % 2 * stone.getHeight() / 2;
+        }
+    }
+
+    /**
+     * @param slot The position of the stone in its container.
+     * @return The x-coordinate of the stone.
+     */
+    public int getX(int slot) {
+        return xs[slot % SLOT_COUNT];
+    }
+
+    /**
+     * @param slot The position of the stone in its container.
+     * @return The y-coordinate of the stone.
+     */
+    public int getY(int slot) {
+        return ys[slot % SLOT_COUNT];
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * A strategy that scores a position by how many more stones the player to move has in its mancala.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class StoreDifferenceEvaluator extends Evaluator {
+    /**
+     * @param state The position to score.
+     * @return The mancala of the player to move minus the mancala of the opponent.
+     */
+    public int evaluate(GameState state) {
+        int difference = state.getStoreDifference() * STONE;
+        return state.isFirstPlayerTurn() ? difference : -difference;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Decides how long the engine thinks about one move when it plays on a clock. Instead of a flat time per move, the
+ * time is split from the remaining clock over the moves the game is likely to last, then scaled by the position:
+ *
+ * <ul>
+ * <li>A position with a single legal move is played at once, and positions with more choices get more time.</li>
+ * <li>Every pit of the mover that ends in its own mancala starts an extra-turn chain, so the turn takes several
+ * moves and the time of the turn is split between them.</li>
+ * <li>After every iteration of the search, a best move that stays the same lets the search stop early, while a best
+ * move that just changed makes it search on.</li>
+ * </ul>
+ *
+ * Time already spent on the position before the move, like pondering on the opponent's time, is taken off the soft
+ * limit, so a position that was pondered long enough is answered at once.
+ *
+ * Besides this soft limit, the hard limit is an emergency stop that aborts the search in the middle of an iteration,
+ * so the engine never loses on time. An iteration that is not expected to finish before the hard limit is not started,
+ * and neither is one that is expected to run far past the soft limit.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class TimeManager {
+    public static final long SAFETY_MILLIS = 50;
+    public static final long MIN_MILLIS = 5;
+    public static final int MIN_MOVES_TO_GO = 8;
+    public static final int MAX_MOVES_TO_GO = 30;
+
+    private final long softMillis;
+    private final long hardMillis;
+    private int bestMove;
+    private int stableIterations;
+    private long previousElapsed;
+    private long previousIterationMillis;
+
+    /**
+     * Constructor that works out the time for a move.
+     *
+     * @param remainingMillis The time left on the mover's clock.
+     * @param incrementMillis The time added to the clock after every move.
+     * @param position The position to think about.
+     */
+    public TimeManager(long remainingMillis, long incrementMillis, GameState position) {
+        this(remainingMillis, incrementMillis, position, 0);
+    }
+
+    /**
+     * Constructor that works out the time for a move that was already searched for a while.
+     *
+     * @param remainingMillis The time left on the mover's clock.
+     * @param incrementMillis The time added to the clock after every move.
+     * @param position The position to think about.
+     * @param creditMillis The time already spent searching the position off the mover's clock. It is taken off the
+     *                     soft limit but not off the hard limit, which protects the clock.
+     */
+    public TimeManager(long remainingMillis, long incrementMillis, GameState position, long creditMillis) {
+        int legalMoves = 0;
+        int extraTurns = 0;
+        int stones = 0;
+        int mancala = position.getCurrentMancalaIndex();
+
+        for (int i = 0; i < GameState.PIT_COUNT; i++) {
+            if (i != GameState.PLAYER_ONE_MANCALA_INDEX && i != GameState.PLAYER_TWO_MANCALA_INDEX)
+                stones += position.getStones(i);
+
+            if (position.isLegalMove(i)) {
+                legalMoves++;
+
+                if (position.getStones(i) == mancala - i)
+                    extraTurns++;
+            }
+        }
+
+        long available = Math.max(remainingMillis - SAFETY_MILLIS, 0);
+        int movesToGo = Math.max(MIN_MOVES_TO_GO, Math.min(stones / 2, MAX_MOVES_TO_GO));
+        double base = available / (double) movesToGo + incrementMillis * 0.75;
+        double scale = (0.6 + 0.1 * legalMoves) / (1 + 0.25 * extraTurns);
+
+        hardMillis = Math.max(Math.min(available / 3, (long) (base * 4)), MIN_MILLIS);
+        softMillis = legalMoves <= 1 ? 0 : Math.max(Math.min((long) (base * scale), hardMillis) - creditMillis, 0);
+        bestMove = -1;
+        stableIterations = 0;
+        previousElapsed = 0;
+        previousIterationMillis = 0;
+    }
+
+    /**
+     * @return The time after which the search stops between iterations, if the best move is not changing.
+     */
+    public long getSoftMillis() {
+        return softMillis;
+    }
+
+    /**
+     * @return The time after which the search is aborted, even in the middle of an iteration.
+     */
+    public long getHardMillis() {
+        return hardMillis;
+    }
+
+    /**
+     * Called after every completed iteration of the search.
+     *
+     * @param iteration The result of the iteration, with the time spent since the search started.
+     * @return True if the search should stop and play the best move found. False to search another iteration.
+     */
+    public boolean shouldStop(SearchResult iteration) {
+        long elapsed = iteration.getElapsedMillis();
+        long iterationMillis = elapsed - previousElapsed;
+
+        if (iteration.getBestMove() == bestMove)
+            stableIterations++;
+        else if (bestMove >= 0)
+            stableIterations = -1; //The best move just changed, so look deeper
+        else
+            stableIterations = 0;
+
+        bestMove = iteration.getBestMove();
+        double growth = previousIterationMillis > 0 ? iterationMillis / (double) previousIterationMillis : 2;
+        long nextIteration = (long) (Math.max(iterationMillis, 1) * Math.max(Math.min(growth, 8), 2));
+        previousElapsed = elapsed;
+        previousIterationMillis = iterationMillis;
+
+        if (Math.abs(iteration.getScore()) >= SearchEngine.WIN_SCORE)
+            return true; //The outcome is known, deeper iterations only confirm it
+
+        double stability = stableIterations < 0 ? 1.5 : stableIterations >= 3 ? 0.5 : 1 - 0.15 * stableIterations;
+        //An iteration that would run far past the soft limit is not worth starting
+        return elapsed + nextIteration / 2 >= softMillis * stability || elapsed + nextIteration > hardMillis;
+    }
+}
@@ -0,0 +1,197 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * Plays two engines against each other over the EngineProtocol, like two builds of the engine. Every opening of a few
+ * random moves is played twice with the colors swapped, so neither engine profits from a lucky opening. Besides the
+ * result, the nodes per second of both engines are measured, so a change can be tested for speed as well as strength.
+ *
+ * With a clock, both engines get the same time per game plus an increment per move and manage it themselves. An
+ * engine whose clock runs out loses the game on time.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class Tournament {
+    private final ExternalEngine[] engines;
+    private final int[] points;
+    private final long[] nodes;
+    private final long[] millis;
+    private final int[] flagFalls;
+    private long clockMillis;
+    private long incrementMillis;
+    private int games;
+    private int ties;
+
+    /**
+     * Constructor that initializes all private attributes.
+     *
+     * @param first The first engine.
+     * @param second The second engine.
+     */
+    public Tournament(ExternalEngine first, ExternalEngine second) {
+        engines = new ExternalEngine[] {first, second};
+        points = new int[2];
+        nodes = new long[2];
+        millis = new long[2];
+        flagFalls = new int[2];
+        clockMillis = 0;
+        incrementMillis = 0;
+        games = 0;
+        ties = 0;
+    }
+
+    /**
+     * Play the games on a clock instead of with fixed limits per move.
+     *
+     * @param clockMillis The time of each engine per game, or 0 to play without a clock.
+     * @param incrementMillis The time added to an engine's clock after each of its moves.
+     */
+    public void setClock(long clockMillis, long incrementMillis) {
+        this.clockMillis = clockMillis;
+        this.incrementMillis = incrementMillis;
+    }
+
+    /**
+     * Play pairs of games from random openings.
+     *
+     * @param pairs The number of openings, every one of them played with both colors.
+     * @param stonesPerPit The number of starting stones in every pit.
+     * @param randomMoves The number of random moves of every opening.
+     * @param depth The deepest iteration of every search, or 0 for no limit.
+     * @param maxNodes The number of positions to visit per move, or 0 for no limit.
+     * @param moveTimeMillis The time per move, or 0 for no limit.
+     * @param rand The source of the openings.
+     * @throws IOException If an engine exits.
+     */
+    public void play(int pairs, int stonesPerPit, int randomMoves, int depth, long maxNodes, long moveTimeMillis,
+            Random rand) throws IOException {
+        for (int pair = 0; pair < pairs; pair++) {
+            GameState opening = new GameState(stonesPerPit);
+
+            for (int i = 0; i < randomMoves && !opening.isFinished(); i++) {
+                int move;
+
+                do {
+                    move = rand.nextInt(GameState.PIT_COUNT);
+                } while (!opening.isLegalMove(move));
+
+                opening.play(move);
+            }
+
+            for (int first = 0; first < 2; first++)
+                playGame(opening.clone(), first, depth, maxNodes, moveTimeMillis);
+        }
+    }
+
+    /**
+     * Play one game to the end.
+     *
+     * @param state The opening position.
+     * @param first The engine playing the first player's pits.
+     * @param depth The deepest iteration of every search, or 0 for no limit.
+     * @param maxNodes The number of positions to visit per move, or 0 for no limit.
+     * @param moveTimeMillis The time per move, or 0 for no limit.
+     * @throws IOException If an engine exits or plays an illegal move.
+     */
+    private void playGame(GameState state, int first, int depth, long maxNodes, long moveTimeMillis)
+            throws IOException {
+        long[] clocks = {clockMillis, clockMillis};
+        engines[0].newGame();
+        engines[1].newGame();
+
+        while (!state.isFinished()) {
+            int mover = state.isFirstPlayerTurn() ? first : 1 - first;
+            SearchResult result = engines[mover].search(state, depth, maxNodes, moveTimeMillis, clocks[mover],
+                    incrementMillis, null);
+
+            if (!state.isLegalMove(result.getBestMove()))
+                throw new IOException("Engine " + engines[mover].getName() + " played " + result.getBestMove());
+
+            nodes[mover] += result.getNodes();
+            millis[mover] += result.getElapsedMillis();
+            state.play(result.getBestMove());
+
+            if (clockMillis > 0) {
+                clocks[mover] -= result.getElapsedMillis();
+
+                if (clocks[mover] <= 0) {
+                    games++;
+                    flagFalls[mover]++;
+                    points[1 - mover]++;
+                    return;
+                }
+
+                clocks[mover] += incrementMillis;
+            }
+        }
+
+        games++;
+
+        if (state.getStoreDifference() == 0)
+            ties++;
+        else
+            points[state.getStoreDifference() > 0 ? first : 1 - first]++;
+    }
+
+    /**
+     * @return The wins, losses and ties of the first engine, the speed of both engines, and the games lost on time.
+     */
+    public String getSummary() {
+        String summary = String.format("%d games: %d wins, %d losses, %d ties for the first engine (%s); " +
+                "%.0f vs %.0f nodes/s", games, points[0], points[1], ties, engines[0].getName(),
+                nodes[0] * 1000.0 / Math.max(millis[0], 1), nodes[1] * 1000.0 / Math.max(millis[1], 1));
+
+        if (clockMillis > 0)
+            summary += String.format("; %d vs %d lost on time", flagFalls[0], flagFalls[1]);
+
+        return summary;
+    }
+
+    /**
+     * Run a tournament between two engine command lines, like two class paths of this program.
+     *
+     * @param args The first command line, the second command line ("default" for this program's engine), the number
+     *             of openings, and optionally the depth, the nodes, the time per move, the time per game and the
+     *             increment per move, all times in milliseconds.
+     * @throws IOException If an engine exits.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: \"engine command\"|default \"engine command\"|default openings " +
+                    "[depth] [nodes] [moveTimeMillis] [clockMillis] [incrementMillis]");
+            return;
+        }
+
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        long maxNodes = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        long clock = args.length > 6 ? Long.parseLong(args[6]) : 0;
+        long increment = args.length > 7 ? Long.parseLong(args[7]) : 0;
+        long moveTime = args.length > 5 ? Long.parseLong(args[5]) : depth == 0 && maxNodes == 0 && clock == 0 ? 100 : 0;
+        ExternalEngine first = new ExternalEngine(parseCommand(args[0]));
+        ExternalEngine second = null;
+
+        try {
+            second = new ExternalEngine(parseCommand(args[1]));
+            Tournament tournament = new Tournament(first, second);
+            tournament.setClock(clock, increment);
+            tournament.play(Integer.parseInt(args[2]), 4, 4, depth, maxNodes, moveTime, new Random());
+            System.out.println(tournament.getSummary());
+        } finally {
+            first.close();
+
+            if (second != null)
+                second.close();
+        }
+    }
+
+    /**
+     * @param command A command line with its arguments separated by spaces, or "default".
+     * @return The arguments of the command line.
+     */
+    public static java.util.List<String> parseCommand(String command) {
+        if (command.equals("default"))
+            return ExternalEngine.getDefaultCommand();
+
+        return Arrays.asList(command.trim().split("\\s+"));
+    }
+}
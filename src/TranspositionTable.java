@@ -0,0 +1,94 @@
+/**
+ * A fixed size hash table of searched positions. Every slot is two longs, the key and a packed entry, so the table
+ * creates no objects while searching.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int UPPER_BOUND = 3;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+
+    /**
+     * Constructor that allocates every slot up front.
+     *
+     * @param sizeBits The table holds 2^sizeBits slots.
+     */
+    public TranspositionTable(int sizeBits) {
+        keys = new long[1 << sizeBits];
+        entries = new long[1 << sizeBits];
+        mask = (1 << sizeBits) - 1;
+    }
+
+    /**
+     * @param key The hash of the position.
+     * @return The packed entry of the position, or 0 if it is not in the table.
+     */
+    public long probe(long key) {
+        int slot = (int) key & mask;
+        return keys[slot] == key ? entries[slot] : 0;
+    }
+
+    /**
+     * Store a searched position, replacing whatever shared its slot unless that was the same position searched deeper.
+     *
+     * @param key The hash of the position.
+     * @param depth The remaining depth the position was searched to.
+     * @param score The score of the position.
+     * @param bound Whether the score is EXACT, a LOWER_BOUND or an UPPER_BOUND.
+     * @param move The best move found, or -1.
+     */
+    public void store(long key, int depth, int score, int bound, int move) {
+        int slot = (int) key & mask;
+
+        if (keys[slot] == key && depthOf(entries[slot]) > depth)
+            return;
+
+        keys[slot] = key;
+        entries[slot] = (long) score << 32 | (depth & 0xFF) << 16 | (bound & 0xFF) << 8 | (move & 0xFF);
+    }
+
+    /**
+     * Forget every position.
+     */
+    public void clear() {
+        java.util.Arrays.fill(keys, 0);
+        java.util.Arrays.fill(entries, 0);
+    }
+
+    /**
+     * @param entry A packed entry.
+     * @return The score of the entry.
+     */
+    public static int scoreOf(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    /**
+     * @param entry A packed entry.
+     * @return The remaining depth of the entry.
+     */
+    public static int depthOf(long entry) {
+        return (int) (entry >>> 16) & 0xFF;
+    }
+
+    /**
+     * @param entry A packed entry.
+     * @return The bound of the entry, or 0 if there is no entry.
+     */
+    public static int boundOf(long entry) {
+        return (int) (entry >>> 8) & 0xFF;
+    }
+
+    /**
+     * @param entry A packed entry.
+     * @return The best move of the entry, or -1.
+     */
+    public static int moveOf(long entry) {
+        return (byte) entry;
+    }
+}
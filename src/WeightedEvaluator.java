@@ -0,0 +1,137 @@
+import java.io.*;
+import java.util.*;
+
+/**
+ * A strategy that scores a position as a weighted sum of a few features, every one of them the mover's value minus
+ * the opponent's. The weights are fitted to game outcomes by EvalTuner. The default weights only count the store
+ * difference, which scores exactly like StoreDifferenceEvaluator.
+ *
+ * @author David Tang, Jonathan Yee, Stefan Schmainta
+ */
+public class WeightedEvaluator extends Evaluator {
+    public static final String DEFAULT_FILE = "mancala.weights";
+    public static final String[] FEATURES = {"store", "seeds", "extraTurns", "emptyPits", "captures", "tempo"};
+
+    private final int[] weights;
+    private final byte[] pits;
+    private final int[] values;
+
+    /**
+     * Constructor that only weighs the store difference.
+     */
+    public WeightedEvaluator() {
+        this(new int[] {STONE, 0, 0, 0, 0, 0});
+    }
+
+    /**
+     * Constructor that initializes all private attributes to the given parameters.
+     *
+     * @param weights The weight of every feature, in hundredths of a stone per unit.
+     */
+    public WeightedEvaluator(int[] weights) {
+        if (weights.length != FEATURES.length)
+            throw new IllegalArgumentException("Expected " + FEATURES.length + " weights but got " + weights.length);
+
+        this.weights = weights.clone();
+        pits = new byte[GameState.PIT_COUNT];
+        values = new int[FEATURES.length];
+    }
+
+    /**
+     * Read the weights from a file of "feature weight" lines. Features that are missing keep a weight of 0.
+     *
+     * @param file The weights file.
+     * @return An evaluator using those weights.
+     * @throws IOException If the file cannot be read or names an unknown feature.
+     */
+    public static WeightedEvaluator load(File file) throws IOException {
+        int[] weights = new int[FEATURES.length];
+        List<String> names = Arrays.asList(FEATURES);
+        BufferedReader in = new BufferedReader(new FileReader(file));
+
+        try {
+            String line;
+
+            while ((line = in.readLine()) != null) {
+                String[] tokens = line.trim().split("\\s+");
+
+                if (tokens.length < 2 || tokens[0].startsWith("#"))
+                    continue;
+
+                int feature = names.indexOf(tokens[0]);
+
+                if (feature < 0)
+                    throw new IOException("Unknown feature " + tokens[0] + " in " + file);
+
+                weights[feature] = (int) Math.round(Double.parseDouble(tokens[1]));
+            }
+        } finally {
+            in.close();
+        }
+
+        return new WeightedEvaluator(weights);
+    }
+
+    /**
+     * @param state The position to score.
+     * @return The score from the point of view of the player to move, in hundredths of a stone.
+     */
+    public int evaluate(GameState state) {
+        state.copyPits(pits, 0);
+        extract(pits, 0, state.isFirstPlayerTurn(), values);
+        int score = 0;
+
+        for (int i = 0; i < FEATURES.length; i++)
+            score += weights[i] * values[i];
+
+        return score;
+    }
+
+    /**
+     * Compute every feature of a position.
+     *
+     * @param pits The stone counts of the position.
+     * @param offset The index of the first container in the array.
+     * @param firstPlayerTurn Whether or not the first player is to move.
+     * @param values The array receiving the value of every feature.
+     */
+    public static void extract(byte[] pits, int offset, boolean firstPlayerTurn, int[] values) {
+        int mover = firstPlayerTurn ? 0 : GameState.PITS_PER_PLAYER + 1;
+        int opponent = firstPlayerTurn ? GameState.PITS_PER_PLAYER + 1 : 0;
+
+        values[0] = pits[offset + mover + GameState.PITS_PER_PLAYER] - pits[offset + opponent + GameState.PITS_PER_PLAYER];
+        values[1] = 0;
+        values[2] = 0;
+        values[3] = 0;
+        values[4] = 0;
+        values[5] = 1;
+
+        for (int i = 0; i < GameState.PITS_PER_PLAYER; i++) {
+            int own = pits[offset + mover + i];
+            int other = pits[offset + opponent + i];
+            int distance = GameState.PITS_PER_PLAYER - i;
+            values[1] += own - other;
+
+            if (own == distance)
+                values[2]++;
+            if (other == distance)
+                values[2]--;
+
+            if (own == 0) {
+                values[3]++;
+                values[4] += pits[offset + opponent + GameState.PITS_PER_PLAYER - 1 - i];
+            }
+            if (other == 0) {
+                values[3]--;
+                values[4] -= pits[offset + mover + GameState.PITS_PER_PLAYER - 1 - i];
+            }
+        }
+    }
+
+    /**
+     * @return A copy of the weight of every feature.
+     */
+    public int[] getWeights() {
+        return weights.clone();
+    }
+}